@@ -122,6 +122,75 @@ val headlessShadowJar by tasks.creating(ShadowJar::class) {
     classifier = "headless-all"
 }
 
+// Java 21 versions of some classes, put in META-INF/versions/21 of a multi-release jar so that Java 8 still runs the
+// default ones. Gradle itself can't run on Java 21, so they are compiled with a separate JDK, given with
+// -Pjava21Home=<path> or the JAVA21_HOME environment variable. Without it the jars only contain the Java 8 classes.
+val java21Home = (project.findProperty("java21Home") as String?) ?: System.getenv("JAVA21_HOME")
+val java21 = sourceSets.create("java21") {
+    java.setSrcDirs(listOf("src/main/java21"))
+    compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+}
+tasks.getByName<JavaCompile>(java21.compileJavaTaskName) {
+    enabled = java21Home != null
+    sourceCompatibility = "21"
+    targetCompatibility = "21"
+    options.isFork = true
+    if (java21Home != null) {
+        options.forkOptions.javaHome = file(java21Home)
+    }
+}
+// checks the Java 21 classes on a Java 21 runtime, as the tests run on the JDK Gradle runs on
+val java21Test = sourceSets.create("java21Test") {
+    java.setSrcDirs(listOf("src/test/java21"))
+    compileClasspath += java21.output + sourceSets["main"].output + sourceSets["main"].compileClasspath
+}
+tasks.getByName<JavaCompile>(java21Test.compileJavaTaskName) {
+    enabled = java21Home != null
+    sourceCompatibility = "21"
+    targetCompatibility = "21"
+    options.isFork = true
+    if (java21Home != null) {
+        options.forkOptions.javaHome = file(java21Home)
+    }
+}
+val java21SmokeTest by tasks.creating(JavaExec::class) {
+    description = "Runs the smoke test of the Java 21 classes with the JDK given by java21Home"
+    enabled = java21Home != null
+    dependsOn(java21Test.classesTaskName)
+    // the Java 21 classes first, so that they replace the default ones like in the multi-release jar
+    classpath = java21Test.output + java21.output + sourceSets["main"].runtimeClasspath
+    main = "cubicchunks.converter.lib.util.IOExecutorsSmokeTest"
+    if (java21Home != null) {
+        executable = file(java21Home).resolve("bin/java").path
+    }
+}
+tasks["check"].dependsOn(java21SmokeTest)
+
+if (java21Home != null) {
+    listOf(jar, shadowJar, headlessShadowJar).forEach {
+        it.into("META-INF/versions/21") {
+            from(java21.output)
+        }
+        it.manifest.attributes["Multi-Release"] = "true"
+    }
+}
+
+// JMH benchmarks, run with ./gradlew jmh. Arguments for JMH can be given with -PjmhArgs="<args>"
+val jmh = sourceSets.create("jmh") {
+    compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+    runtimeClasspath += sourceSets["main"].output + sourceSets["main"].runtimeClasspath
+}
+dependencies {
+    "jmhCompile"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+tasks.create("jmh", JavaExec::class) {
+    description = "Runs the JMH benchmarks"
+    classpath = jmh.runtimeClasspath
+    main = "org.openjdk.jmh.Main"
+    (project.findProperty("jmhArgs") as String?)?.let { args(it.split(" ")) }
+}
+
 tasks["build"].dependsOn(shadowJar, headlessShadowJar)
 
 val signing: SigningExtension by extensions
@@ -0,0 +1,134 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.robinton2cc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reordering the arrays of one Robinton cube with a separate loop per array, as it used to be done, against
+ * the single pass with precomputed tables in {@link Robinton2CCConverter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlipXYBenchmark {
+
+    private final byte[] blocks = new byte[4096];
+    private final byte[] data = new byte[2048];
+    private final byte[] blockLight = new byte[2048];
+    private final byte[] skyLight = new byte[2048];
+
+    private final byte[] blocksOut = new byte[4096];
+    private final byte[] dataOut = new byte[2048];
+    private final byte[] blockLightOut = new byte[2048];
+    private final byte[] skyLightOut = new byte[2048];
+
+    @Setup public void setup() {
+        Random rand = new Random(42);
+        rand.nextBytes(blocks);
+        rand.nextBytes(data);
+        rand.nextBytes(blockLight);
+        rand.nextBytes(skyLight);
+    }
+
+    @Benchmark public void perArray(Blackhole bh) {
+        bh.consume(flipXYFull(blocks));
+        bh.consume(flipXYNibble(data));
+        bh.consume(flipXYNibble(blockLight));
+        bh.consume(flipXYNibble(skyLight));
+    }
+
+    @Benchmark public void table(Blackhole bh) {
+        // the converter allocates new arrays for each cube too
+        byte[] blocksOut = new byte[4096];
+        byte[] dataOut = new byte[2048];
+        byte[] blockLightOut = new byte[2048];
+        byte[] skyLightOut = new byte[2048];
+        Robinton2CCConverter.flipXY(blocks, data, blockLight, skyLight, blocksOut, dataOut, blockLightOut, skyLightOut);
+        bh.consume(blocksOut);
+        bh.consume(dataOut);
+        bh.consume(blockLightOut);
+        bh.consume(skyLightOut);
+    }
+
+    @Benchmark public void tableNoAlloc(Blackhole bh) {
+        Robinton2CCConverter.flipXY(blocks, data, blockLight, skyLight, blocksOut, dataOut, blockLightOut, skyLightOut);
+        bh.consume(blocksOut);
+        bh.consume(dataOut);
+        bh.consume(blockLightOut);
+        bh.consume(skyLightOut);
+    }
+
+    private static byte[] flipXYFull(byte[] dataIn) {
+        byte[] newData = new byte[4096];
+        for (int i = 0; i < 4096; i++) {
+            int x = i & 15;
+            int y = i >> 8 & 15;
+            int z = i >> 4 & 15;
+            // current: yyyy zzzz xxxx
+            // old:     xxxx zzzz yyyy
+            int oldIdx = y | z << 4 | x << 8;
+            newData[i] = dataIn[oldIdx];
+        }
+        return newData;
+    }
+
+    private static byte[] flipXYNibble(byte[] dataIn) {
+        byte[] newData = new byte[2048];
+        for (int newIdx = 0; newIdx < 4096; newIdx++) {
+            int x = newIdx & 15;
+            int y = newIdx >> 8 & 15;
+            int z = newIdx >> 4 & 15;
+            // current: yyyy zzzz xxxx
+            // old:     xxxx zzzz yyyy
+            int oldIdx = y | z << 4 | x << 8;
+
+            int oldNibbleIdx = oldIdx >>> 1;
+            int nibbleIdx = newIdx >>> 1;
+
+            boolean oldLower = (oldIdx & 1) == 0;
+            boolean newLower = (newIdx & 1) == 0;
+
+            int data = (dataIn[oldNibbleIdx] >>> (oldLower ? 0 : 4)) & 0xF;
+            newData[nibbleIdx] |= data << (newLower ? 0 : 4);
+        }
+        return newData;
+    }
+}
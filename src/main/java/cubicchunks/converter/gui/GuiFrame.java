@@ -356,7 +356,7 @@ public class GuiFrame extends JFrame {
             Registry.getLevelConverter(inFormat, outFormat, converterName).apply(srcPath, dstPath),
             Registry.getReader(inFormat).apply(srcPath, conf),
             Registry.getConverter(inFormat, outFormat, converterName).apply(conf),
-            Registry.getWriter(outFormat).apply(dstPath)
+            Registry.getWriter(outFormat).apply(dstPath, conf)
         );
 
         ConverterWorker w = new ConverterWorker(converter, progressBar, convertFill, ioFill, updateProgress, () -> failed.set(true), this);
@@ -32,6 +32,7 @@ import cubicchunks.converter.lib.convert.WorldConverter;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -69,7 +70,39 @@ public class HeadlessConverter {
 
     private static void convert(HeadlessCommandContext context) {
         AtomicBoolean failed = new AtomicBoolean(false);
-        Function<Consumer<Throwable>, ConverterConfig> configLoader = Registry.getConfigLoaderById(context.getInFormat(), context.getOutFormat(), context.getConverterName());
+        ConverterConfig conf = loadConfig(context.getInFormat(), context.getOutFormat(), context.getConverterName(), failed);
+        if (conf == null) {
+            return;
+        }
+
+        WorldConverter.Builder<Object> builder = new WorldConverter.Builder<>();
+        addOutput(builder, context.getSrcWorld(), context.getInFormat(), context.getOutFormat(), context.getDstWorld(), context.getConverterName(), conf);
+        for (HeadlessCommandContext.TeeOutput output : context.getTeeOutputs()) {
+            ConverterConfig teeConf = loadConfig(context.getInFormat(), output.getOutFormat(), output.getConverterName(), failed);
+            if (teeConf == null) {
+                return;
+            }
+            addOutput(builder, context.getSrcWorld(), context.getInFormat(), output.getOutFormat(), output.getDstWorld(), output.getConverterName(), teeConf);
+        }
+
+        WorldConverter<?, ?> converter = builder
+            .setReader(Registry.<Object>getReaderById(context.getInFormat()).apply(context.getSrcWorld(), conf))
+            .build();
+
+        HeadlessWorker w = new HeadlessWorker(converter, HeadlessConverter::done, () -> failed.set(true));
+        try {
+            w.convert();
+        } catch (IOException e) {
+            failed.set(true);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the loaded config, or null if loading it failed
+     */
+    private static ConverterConfig loadConfig(String inFormat, String outFormat, String converterName, AtomicBoolean failed) {
+        Function<Consumer<Throwable>, ConverterConfig> configLoader = Registry.getConfigLoaderById(inFormat, outFormat, converterName);
         ConverterConfig conf = new ConverterConfig(new HashMap<>());
         if (configLoader != null) {
             try {
@@ -84,29 +117,24 @@ public class HeadlessConverter {
                     // TODO: logging
                     ex.printStackTrace();
                     //updateProgress.run();
-                    return;
+                    return null;
                 }
             }
             if (failed.get()) {
                 //updateProgress.run();
-                return;
+                return null;
             }
         }
+        return conf;
+    }
 
-        WorldConverter<?, ?> converter = new WorldConverter<>(
-            Registry.getLevelConverterById(context.getInFormat(), context.getOutFormat(), context.getConverterName()).apply(context.getSrcWorld(), context.getDstWorld()),
-            Registry.getReaderById(context.getInFormat()).apply(context.getSrcWorld(), conf),
-            Registry.getConverterById(context.getInFormat(), context.getOutFormat(), context.getConverterName()).apply(conf),
-            Registry.getWriterById(context.getOutFormat()).apply(context.getDstWorld())
+    private static void addOutput(WorldConverter.Builder<Object> builder, Path srcWorld, String inFormat, String outFormat, Path dstWorld,
+            String converterName, ConverterConfig conf) {
+        builder.addOutput(
+            Registry.<Object, Object>getLevelConverterById(inFormat, outFormat, converterName).apply(srcWorld, dstWorld),
+            Registry.<Object, Object>getConverterById(inFormat, outFormat, converterName).apply(conf),
+            Registry.<Object>getWriterById(outFormat).apply(dstWorld, conf)
         );
-
-        HeadlessWorker w = new HeadlessWorker(converter, HeadlessConverter::done, () -> failed.set(true));
-        try {
-            w.convert();
-        } catch (IOException e) {
-            failed.set(true);
-            e.printStackTrace();
-        }
     }
 
     private static void done() {
@@ -24,6 +24,8 @@
 package cubicchunks.converter.headless.command;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class HeadlessCommandContext {
     private Path srcWorld;
@@ -33,6 +35,8 @@ public class HeadlessCommandContext {
     private String outFormat;
     private String converterName = "default";
 
+    private final List<TeeOutput> teeOutputs = new ArrayList<>();
+
     public Path getSrcWorld() {
         return srcWorld;
     }
@@ -73,6 +77,14 @@ public class HeadlessCommandContext {
         this.converterName = converterName;
     }
 
+    public List<TeeOutput> getTeeOutputs() {
+        return teeOutputs;
+    }
+
+    public void addTeeOutput(TeeOutput output) {
+        this.teeOutputs.add(output);
+    }
+
     @Override
     public String toString() {
         return "HeadlessCommandContext{" +
@@ -81,6 +93,43 @@ public class HeadlessCommandContext {
             ", inFormat='" + inFormat + '\'' +
             ", outFormat='" + outFormat + '\'' +
             ", converterName='" + converterName + '\'' +
+            ", teeOutputs=" + teeOutputs +
             '}';
     }
+
+    /**
+     * An additional output converted from the same read of the source world.
+     */
+    public static class TeeOutput {
+        private final String outFormat;
+        private final Path dstWorld;
+        private final String converterName;
+
+        public TeeOutput(String outFormat, Path dstWorld, String converterName) {
+            this.outFormat = outFormat;
+            this.dstWorld = dstWorld;
+            this.converterName = converterName;
+        }
+
+        public String getOutFormat() {
+            return outFormat;
+        }
+
+        public Path getDstWorld() {
+            return dstWorld;
+        }
+
+        public String getConverterName() {
+            return converterName;
+        }
+
+        @Override
+        public String toString() {
+            return "TeeOutput{" +
+                "outFormat='" + outFormat + '\'' +
+                ", dstWorld=" + dstWorld +
+                ", converterName='" + converterName + '\'' +
+                '}';
+        }
+    }
 }
@@ -42,6 +42,7 @@ public class HeadlessCommands {
         InFormatCommand.register(dispatcher);
         OutFormatCommand.register(dispatcher);
         ConverterNameCommand.register(dispatcher);
+        TeeOutputCommand.register(dispatcher);
     }
 
     public static int handleCommand(HeadlessCommandContext context, String command) {
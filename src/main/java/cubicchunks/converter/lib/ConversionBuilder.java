@@ -0,0 +1,197 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ChunkDataConverter;
+import cubicchunks.converter.lib.convert.ChunkDataReader;
+import cubicchunks.converter.lib.convert.ChunkDataWriter;
+import cubicchunks.converter.lib.convert.LevelInfoConverter;
+import cubicchunks.converter.lib.convert.WorldConverter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sets up a conversion for use as a library. Formats and converters are looked up by their ids in {@link Registry},
+ * everything else is set per conversion, so any number of conversions can run in one process at the same time.
+ * <p>
+ * Without an explicit config, each output loads its converter config like the GUI and headless mode do, which may
+ * read config files from the working directory.
+ */
+public class ConversionBuilder {
+
+    private Path srcWorld;
+    private String inFormat;
+    private final List<Output> outputs = new ArrayList<>();
+    private Consumer<Throwable> configErrorHandler = error -> {
+        throw new IllegalArgumentException("Loading converter config failed", error);
+    };
+    private int convertThreads = WorldConverter.DEFAULT_THREADS;
+    private int convertQueueSize = -1;
+    private int ioQueueSize = -1;
+    private ThreadFactory threadFactory;
+    private final Map<String, Object> options = new HashMap<>();
+
+    public ConversionBuilder setSource(Path srcWorld, String inFormat) {
+        this.srcWorld = srcWorld;
+        this.inFormat = inFormat;
+        return this;
+    }
+
+    public ConversionBuilder addOutput(Path dstWorld, String outFormat, String converter) {
+        return addOutput(dstWorld, outFormat, converter, null);
+    }
+
+    /**
+     * @param config the converter config to use instead of loading it, or null to load it
+     */
+    public ConversionBuilder addOutput(Path dstWorld, String outFormat, String converter, ConverterConfig config) {
+        outputs.add(new Output(dstWorld, outFormat, converter, config));
+        return this;
+    }
+
+    /**
+     * Sets what's done with errors from loading converter configs. Throws an exception from {@link #build()} by
+     * default.
+     */
+    public ConversionBuilder setConfigErrorHandler(Consumer<Throwable> configErrorHandler) {
+        this.configErrorHandler = configErrorHandler;
+        return this;
+    }
+
+    public ConversionBuilder setConvertThreads(int threads) {
+        this.convertThreads = threads;
+        return this;
+    }
+
+    public ConversionBuilder setConvertQueueSize(int size) {
+        this.convertQueueSize = size;
+        return this;
+    }
+
+    public ConversionBuilder setIOQueueSize(int size) {
+        this.ioQueueSize = size;
+        return this;
+    }
+
+    public ConversionBuilder setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+        return this;
+    }
+
+    /**
+     * Sets a config value for the reader, all converters and all writers of this conversion, like
+     * {@link cubicchunks.converter.lib.convert.io.AnvilChunkReader#THREADS} or
+     * {@link cubicchunks.converter.lib.util.IOExecutors#IO_DEPTH}. It is also set in configs given to
+     * {@link #addOutput(Path, String, String, ConverterConfig)}.
+     */
+    public ConversionBuilder setOption(String key, Object value) {
+        options.put(key, value);
+        return this;
+    }
+
+    /**
+     * Creates the reader, converters and writers. The conversion is then started with
+     * {@link WorldConverter#convert(IProgressListener)}, which reports progress and errors to the given listener.
+     */
+    public WorldConverter<?, ?> build() {
+        if (srcWorld == null || inFormat == null) {
+            throw new IllegalStateException("No source world set");
+        }
+        if (outputs.isEmpty()) {
+            throw new IllegalStateException("No outputs set");
+        }
+        BiFunction<Path, ConverterConfig, ? extends ChunkDataReader<Object>> reader = Registry.getReaderById(inFormat);
+        if (reader == null) {
+            throw new IllegalArgumentException("Unknown input format " + inFormat);
+        }
+        WorldConverter.Builder<Object> worldConverter = new WorldConverter.Builder<>().setConvertThreads(convertThreads);
+        if (convertQueueSize > 0) {
+            worldConverter.setConvertQueueSize(convertQueueSize);
+        }
+        if (ioQueueSize > 0) {
+            worldConverter.setIOQueueSize(ioQueueSize);
+        }
+        if (threadFactory != null) {
+            worldConverter.setThreadFactory(threadFactory);
+        }
+        ConverterConfig readerConfig = null;
+        for (Output output : outputs) {
+            BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<Object>> writer = Registry.getWriterById(output.outFormat);
+            if (writer == null) {
+                throw new IllegalArgumentException("Unknown output format " + output.outFormat);
+            }
+            ConverterConfig config = output.config != null ? output.config : loadConfig(output);
+            options.forEach(config::set);
+            if (readerConfig == null) {
+                readerConfig = config;
+            }
+            BiFunction<Path, Path, LevelInfoConverter<Object, Object>> levelConverter =
+                    Registry.getLevelConverterById(inFormat, output.outFormat, output.converter);
+            Function<ConverterConfig, ChunkDataConverter<Object, Object>> converter =
+                    Registry.getConverterById(inFormat, output.outFormat, output.converter);
+            if (levelConverter == null || converter == null) {
+                throw new IllegalArgumentException("No converter " + output.converter + " from " + inFormat + " to " + output.outFormat);
+            }
+            worldConverter.addOutput(levelConverter.apply(srcWorld, output.dstWorld), converter.apply(config), writer.apply(output.dstWorld, config));
+        }
+        return worldConverter
+                .setReader(reader.apply(srcWorld, readerConfig))
+                .build();
+    }
+
+    private ConverterConfig loadConfig(Output output) {
+        Function<Consumer<Throwable>, ConverterConfig> loader = Registry.getConfigLoaderById(inFormat, output.outFormat, output.converter);
+        if (loader == null) {
+            return new ConverterConfig(new HashMap<>());
+        }
+        ConverterConfig config = loader.apply(configErrorHandler);
+        if (config == null) {
+            throw new IllegalStateException("Loading converter config for " + output.converter + " failed");
+        }
+        return config;
+    }
+
+    private static class Output {
+        private final Path dstWorld;
+        private final String outFormat;
+        private final String converter;
+        private final ConverterConfig config;
+
+        Output(Path dstWorld, String outFormat, String converter, ConverterConfig config) {
+            this.dstWorld = dstWorld;
+            this.outFormat = outFormat;
+            this.converter = converter;
+            this.config = config;
+        }
+    }
+}
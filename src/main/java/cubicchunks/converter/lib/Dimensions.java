@@ -25,12 +25,13 @@ package cubicchunks.converter.lib;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class Dimensions {
 
-    private static final Set<Dimension> ALL_DIMENSIONS = new HashSet<>();
+    // dimensions are rarely added, but may be listed by several conversions at once
+    private static final Set<Dimension> ALL_DIMENSIONS = new CopyOnWriteArraySet<>();
 
     static {
         addDimension(new Dimension("Overworld", ""));
@@ -32,10 +32,16 @@ import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.ChunkDataReader;
 import cubicchunks.converter.lib.convert.ChunkDataWriter;
 import cubicchunks.converter.lib.convert.LevelInfoConverter;
+import cubicchunks.converter.lib.convert.anvil2bigCubeCc.Anvil2BigCubeCcDataConverter;
+import cubicchunks.converter.lib.convert.anvil2bigCubeCc.Anvil2BigCubeCcLevelInfoConverter;
 import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCDataConverter;
 import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCLevelInfoConverter;
+import cubicchunks.converter.lib.convert.anvil2ccrelocating.Anvil2CCRelocatingDataConverter;
+import cubicchunks.converter.lib.convert.anvil2ccrelocating.Anvil2CCRelocatingLevelInfoConverter;
 import cubicchunks.converter.lib.convert.cc2bigCubeCc.Cc2BigCubeCcDataConverter;
 import cubicchunks.converter.lib.convert.cc2bigCubeCc.Cc2BigCubeCcLevelInfoConverter;
+import cubicchunks.converter.lib.convert.cc2ccmerging.CC2CCRegionMergingDataConverter;
+import cubicchunks.converter.lib.convert.cc2ccmerging.CC2CCRegionMergingLevelInfoConverter;
 import cubicchunks.converter.lib.convert.cc2ccrelocating.CC2CCRelocatingDataConverter;
 import cubicchunks.converter.lib.convert.cc2ccrelocating.CC2CCRelocatingLevelInfoConverter;
 import cubicchunks.converter.lib.convert.cc2anvil.CC2AnvilDataConverter;
@@ -59,9 +65,9 @@ public class Registry {
     private static final BiMap<String, BiFunction<Path, ConverterConfig, ? extends ChunkDataReader<?>>> readersById = Maps.synchronizedBiMap(HashBiMap.create());
     private static final BiMap<Class<?>, BiFunction<Path, ConverterConfig, ? extends ChunkDataReader<?>>> readersByClass = Maps.synchronizedBiMap(HashBiMap.create());
 
-    private static final BiMap<String, Function<Path, ? extends ChunkDataWriter<?>>> writersByName = Maps.synchronizedBiMap(HashBiMap.create());
-    private static final BiMap<String, Function<Path, ? extends ChunkDataWriter<?>>> writersById = Maps.synchronizedBiMap(HashBiMap.create());
-    private static final BiMap<Class<?>, Function<Path, ? extends ChunkDataWriter<?>>> writersByClass = Maps.synchronizedBiMap(HashBiMap.create());
+    private static final BiMap<String, BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<?>>> writersByName = Maps.synchronizedBiMap(HashBiMap.create());
+    private static final BiMap<String, BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<?>>> writersById = Maps.synchronizedBiMap(HashBiMap.create());
+    private static final BiMap<Class<?>, BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<?>>> writersByClass = Maps.synchronizedBiMap(HashBiMap.create());
 
     private static final BiMap<StringTriple, Class<? extends ChunkDataConverter<?, ?>>> convertersByName = Maps.synchronizedBiMap(HashBiMap.create());
     private static final BiMap<StringTriple, Class<? extends ChunkDataConverter<?, ?>>> convertersById = Maps.synchronizedBiMap(HashBiMap.create());
@@ -70,21 +76,28 @@ public class Registry {
     private static final BiMap<ClassTriple<?, ?, ?>, Function<Consumer<Throwable>, ConverterConfig>> configLoaders = Maps.synchronizedBiMap(HashBiMap.create());
 
     static {
-        registerReader("Anvil", "anvil", AnvilChunkReader::new, AnvilChunkData.class);
+        // lambdas where a method reference would be ambiguous between the overloads
+        registerReader("Anvil", "anvil", (path, conf) -> new AnvilChunkReader(path, conf), AnvilChunkData.class);
         registerReader("CubicChunks 1.10 - 1.12", "cubicchunks:1.10-1.12", CubicChunkReader::new, CubicChunksColumnData.class);
         registerReader("CubicChunks 1.10 - 1.12 - Relocating", "cubicchunks:1.10-1.12-relocating", PriorityCubicChunkReader::new, PriorityCubicChunksColumnData.class);
+        registerReader("Anvil (big cube columns)", "anvil:bigcube_columns", (path, conf) -> new AnvilChunkGroupReader(path, conf), AnvilChunkGroupData.class);
         registerReader("RobintonCubicChunks", "robinton_cubicchunks", RobintonChunkReader::new, RobintonColumnData.class);
+        registerReader("CubicChunks 1.10 - 1.12 - Merging", "cubicchunks:1.10-1.12-merging", RegionMergeReader::new, RegionMergeData.class);
         registerReader("CubicChunks 1.10 - 1.12 (BigCube)", "cubicchunks_bigcube:1.10-1.12", CubicChunksBigCube112Reader::new, CubicChunksBigCube112Data.class);
 
-        registerWriter("Anvil", "anvil", AnvilChunkWriter::new, MultilayerAnvilChunkData.class);
+        registerWriter("Anvil", "anvil", (path, conf) -> new AnvilChunkWriter(path, conf), MultilayerAnvilChunkData.class);
         registerWriter("CubicChunks 1.10 - 1.12", "cubicchunks:1.10-1.12", CubicChunkWriter::new, CubicChunksColumnData.class);
-        registerWriter("CubicChunks 1.10 - 1.12 - Relocating", "cubicchunks:1.10-1.12-relocating", PriorityCubicChunkWriter::new, PriorityCubicChunksColumnData.class);
+        registerWriter("CubicChunks 1.10 - 1.12 - Relocating", "cubicchunks:1.10-1.12-relocating", (path, conf) -> new PriorityCubicChunkWriter(path, conf), PriorityCubicChunksColumnData.class);
+        registerWriter("CubicChunks 1.10 - 1.12 - Merging", "cubicchunks:1.10-1.12-merging", RegionMergeWriter::new, RegionMergeData.class);
         registerWriter("CubicChunks 1.17+ (ProtoBigCube)", "cubicchunks:1.17", CubicChunksProtoBigCubeWriter::new, CubicChunksProtoBigCubeData.class);
 
         registerConverter("Default", "default", Anvil2CCDataConverter::new, Anvil2CCLevelInfoConverter::new, Anvil2CCDataConverter::loadConfig, AnvilChunkData.class, CubicChunksColumnData.class, Anvil2CCDataConverter.class);
-        registerConverter("Default", "default", CC2AnvilDataConverter::new, CC2AnvilLevelInfoConverter::new, CubicChunksColumnData.class, MultilayerAnvilChunkData.class, CC2AnvilDataConverter.class);
+        registerConverter("Default", "default", CC2AnvilDataConverter::new, CC2AnvilLevelInfoConverter::new, CC2AnvilDataConverter::loadConfig, CubicChunksColumnData.class, MultilayerAnvilChunkData.class, CC2AnvilDataConverter.class);
         registerConverter("Relocating", "relocating", CC2CCRelocatingDataConverter::new, CC2CCRelocatingLevelInfoConverter::new, CC2CCRelocatingDataConverter::loadConfig, PriorityCubicChunksColumnData.class, PriorityCubicChunksColumnData.class, CC2CCRelocatingDataConverter.class);
+        registerConverter("Relocating", "relocating", Anvil2CCRelocatingDataConverter::new, Anvil2CCRelocatingLevelInfoConverter::new, Anvil2CCRelocatingDataConverter::loadConfig, AnvilChunkData.class, PriorityCubicChunksColumnData.class, Anvil2CCRelocatingDataConverter.class);
+        registerConverter("Merging", "merging", CC2CCRegionMergingDataConverter::new, CC2CCRegionMergingLevelInfoConverter::new, CC2CCRegionMergingDataConverter::loadConfig, RegionMergeData.class, RegionMergeData.class, CC2CCRegionMergingDataConverter.class);
         registerConverter("Default", "default", Robinton2CCConverter::new, Robinton2CCLevelInfoConverter::new, RobintonColumnData.class, CubicChunksColumnData.class, Robinton2CCConverter.class);
+        registerConverter("Default", "default", Anvil2BigCubeCcDataConverter::new, Anvil2BigCubeCcLevelInfoConverter::new, Anvil2BigCubeCcDataConverter::loadConfig, AnvilChunkGroupData.class, CubicChunksProtoBigCubeData.class, Anvil2BigCubeCcDataConverter.class);
         registerConverter("Default", "default", Cc2BigCubeCcDataConverter::new, Cc2BigCubeCcLevelInfoConverter::new, CubicChunksBigCube112Data.class, CubicChunksProtoBigCubeData.class, Cc2BigCubeCcDataConverter.class);
     }
 
@@ -103,6 +116,10 @@ public class Registry {
     }
 
     public static <T> void registerWriter(String name, String id, Function<Path, ChunkDataWriter<T>> writer, Class<T> clazz) {
+        registerWriter(name, id, (path, conf) -> writer.apply(path), clazz);
+    }
+
+    public static <T> void registerWriter(String name, String id, BiFunction<Path, ConverterConfig, ChunkDataWriter<T>> writer, Class<T> clazz) {
         Preconditions.checkArgument(id.matches(ID_PATTERN), "invalid id: %s", id);
 
         writersByName.put(name, writer);
@@ -158,13 +175,13 @@ public class Registry {
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> Function<Path, ? extends ChunkDataWriter<T>> getWriter(String name) {
-        return (Function<Path, ? extends ChunkDataWriter<T>>) writersByName.get(name);
+    public static <T> BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<T>> getWriter(String name) {
+        return (BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<T>>) writersByName.get(name);
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> Function<Path, ? extends ChunkDataWriter<T>> getWriterById(String id) {
-        return (Function<Path, ? extends ChunkDataWriter<T>>) writersById.get(id);
+    public static <T> BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<T>> getWriterById(String id) {
+        return (BiFunction<Path, ConverterConfig, ? extends ChunkDataWriter<T>>) writersById.get(id);
     }
 
     @SuppressWarnings("unchecked")
@@ -68,6 +68,18 @@ public class ConverterConfig {
         return ((Boolean) getValue(location));
     }
 
+    public int getInt(String location, int defaultValue) {
+        return hasValue(location) ? getInt(location) : defaultValue;
+    }
+
+    public long getLong(String location, long defaultValue) {
+        return hasValue(location) ? getLong(location) : defaultValue;
+    }
+
+    public boolean getBool(String location, boolean defaultValue) {
+        return hasValue(location) ? getBool(location) : defaultValue;
+    }
+
     public String getString(String location) {
         return getValue(location).toString();
     }
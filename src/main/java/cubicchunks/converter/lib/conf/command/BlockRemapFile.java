@@ -0,0 +1,97 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.conf.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A block remap table, compiled from a text file of replace rules.
+ * <p>
+ * Each non-empty line not starting with {@code #} is a rule {@code inId inMeta outId outMeta}. Ids are 12 bit
+ * (0-4095), metadata is 0-15, and an inMeta of {@code *} matches any metadata. Rules apply in order, exactly as the
+ * same list of {@code replace} commands would, so a block changed by one rule can be changed again by a later one.
+ */
+public class BlockRemapFile {
+    public static final int MAX_ID = 4095;
+    public static final int TABLE_SIZE = (MAX_ID + 1) << 4;
+
+    /**
+     * @return the compiled table, indexed and valued by {@code id << 4 | meta}
+     */
+    public static char[] load(Path path) throws IOException {
+        char[] table = new char[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = (char) i;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 4) {
+                    throw new IOException(path + ":" + lineNumber + ": expected \"inId inMeta outId outMeta\", got \"" + line + "\"");
+                }
+                int inId = parse(path, lineNumber, parts[0], MAX_ID);
+                int inMeta = parts[1].equals("*") ? -1 : parse(path, lineNumber, parts[1], 15);
+                int out = parse(path, lineNumber, parts[2], MAX_ID) << 4 | parse(path, lineNumber, parts[3], 15);
+                addRule(table, inId, inMeta, out);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Makes every entry of the table that currently results in the input block result in {@code out} instead.
+     */
+    static void addRule(char[] table, int inId, int inMeta, int out) {
+        for (int i = 0; i < table.length; i++) {
+            int current = table[i];
+            if (current >> 4 == inId && (inMeta == -1 || (current & 15) == inMeta)) {
+                table[i] = (char) out;
+            }
+        }
+    }
+
+    private static int parse(Path path, int lineNumber, String value, int max) throws IOException {
+        int v;
+        try {
+            v = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IOException(path + ":" + lineNumber + ": \"" + value + "\" is not a number");
+        }
+        if (v < 0 || v > max) {
+            throw new IOException(path + ":" + lineNumber + ": " + v + " is not between 0 and " + max);
+        }
+        return v;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.conf.command;
+
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.edittask.KeepEditTask;
+import cubicchunks.converter.lib.util.edittask.RemoveEditTask;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary list of keep and remove boxes, for edit scripts with too many boxes to parse them as commands.
+ * <p>
+ * The file is big endian: the magic number {@code CCBX}, an int format version and an int record count, followed by
+ * one record per box: an op code byte, then six ints - min x, y, z and max x, y, z in cube coordinates.
+ * Consecutive records with the same op code are loaded as one task.
+ */
+public class BoxListFile {
+    public static final int MAGIC = 0x43434258; // CCBX
+    public static final int VERSION = 1;
+
+    public static final byte OP_KEEP = 0;
+    public static final byte OP_KEEP_COLUMN = 1;
+    public static final byte OP_REMOVE = 2;
+
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int RECORD_SIZE = 1 + 6 * Integer.BYTES;
+
+    /**
+     * Adds the tasks from the given box list to the context.
+     *
+     * @return the number of boxes loaded
+     */
+    public static int load(Path path, EditTaskContext context) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buf.order(ByteOrder.BIG_ENDIAN);
+        if (buf.remaining() < HEADER_SIZE || buf.getInt() != MAGIC) {
+            throw new IOException("Not a box list file: " + path);
+        }
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported box list version " + version + " in " + path);
+        }
+        int count = buf.getInt();
+        if (count < 0 || buf.remaining() != (long) count * RECORD_SIZE) {
+            throw new IOException("Box list " + path + " should have " + count + " boxes, but has " + buf.remaining() + " bytes of boxes");
+        }
+
+        byte runOp = -1;
+        List<BoundingBox> run = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte op = buf.get();
+            if (op != OP_KEEP && op != OP_KEEP_COLUMN && op != OP_REMOVE) {
+                throw new IOException("Unknown op code " + op + " for box " + i + " in " + path);
+            }
+            if (op != runOp) {
+                addTask(context, runOp, run);
+                run = new ArrayList<>();
+                runOp = op;
+            }
+            run.add(new BoundingBox(buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt()));
+        }
+        addTask(context, runOp, run);
+        return count;
+    }
+
+    private static void addTask(EditTaskContext context, byte op, List<BoundingBox> boxes) {
+        if (boxes.isEmpty()) {
+            return;
+        }
+        switch (op) {
+            case OP_KEEP:
+                context.addEditTask(KeepEditTask.keepAll(boxes, false));
+                break;
+            case OP_KEEP_COLUMN:
+                context.addEditTask(KeepEditTask.keepAll(boxes, true));
+                break;
+            case OP_REMOVE:
+                context.addEditTask(new RemoveEditTask(boxes));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown op code " + op);
+        }
+    }
+}
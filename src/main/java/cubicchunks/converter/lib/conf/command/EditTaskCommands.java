@@ -47,8 +47,10 @@ public class EditTaskCommands {
         KeepColumnCommand.register(dispatcher);
         SetCommand.register(dispatcher);
         ReplaceCommand.register(dispatcher);
+        RemapCommand.register(dispatcher);
         SchematicCommand.register(dispatcher);
         ConfigCommand.register(dispatcher);
+        BoxesCommand.register(dispatcher);
     }
 
     public static int handleCommand(EditTaskContext context, String command) {
@@ -23,14 +23,20 @@
  */
 package cubicchunks.converter.lib.conf.command;
 
+import cubicchunks.converter.lib.util.Schematic;
 import cubicchunks.converter.lib.util.edittask.EditTask;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class EditTaskContext {
     private final EditTaskConfig config = new EditTaskConfig();
     private final List<EditTask> tasks = new ArrayList<>();
+    private final Map<Path, Schematic> schematics = new HashMap<>();
 
     public void addEditTask(EditTask task) {
         this.tasks.add(task);
@@ -40,6 +46,19 @@ public class EditTaskContext {
         return tasks;
     }
 
+    /**
+     * Returns the schematic at the given path, loading it only the first time it's used by a script.
+     */
+    public Schematic getSchematic(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        Schematic schematic = schematics.get(key);
+        if (schematic == null) {
+            schematic = Schematic.load(key);
+            schematics.put(key, schematic);
+        }
+        return schematic;
+    }
+
     public EditTaskConfig config() {
         return config;
     }
@@ -50,6 +69,11 @@ public class EditTaskContext {
 
         public EditTaskConfig() {}
 
+        public EditTaskConfig(EditTaskConfig other) {
+            this.shouldRelightSrc = other.shouldRelightSrc;
+            this.shouldRelightDst = other.shouldRelightDst;
+        }
+
         public void relightSrc(boolean val) {
             shouldRelightSrc = val;
         }
@@ -0,0 +1,53 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.conf.command.commands;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import cubicchunks.converter.lib.conf.command.BoxListFile;
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * {@code boxes "path"} loads keep and remove boxes from a {@link BoxListFile}.
+ */
+public class BoxesCommand {
+    public static void register(CommandDispatcher<EditTaskContext> dispatcher) {
+        dispatcher.register(LiteralArgumentBuilder.<EditTaskContext>literal("boxes")
+            .then(RequiredArgumentBuilder.<EditTaskContext, String>argument("path", StringArgumentType.string())
+                .executes((info) -> {
+                    try {
+                        return BoxListFile.load(Paths.get(StringArgumentType.getString(info, "path")), info.getSource());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+            )
+        );
+    }
+}
@@ -32,7 +32,6 @@ import cubicchunks.converter.lib.conf.command.EditTaskContext;
 import cubicchunks.converter.lib.conf.command.arguments.Matrix4dArgument;
 import cubicchunks.converter.lib.conf.command.arguments.Vector3iArgument;
 import cubicchunks.converter.lib.util.Matrix4d;
-import cubicchunks.converter.lib.util.Schematic;
 import cubicchunks.converter.lib.util.Vector3i;
 import cubicchunks.converter.lib.util.edittask.SchematicTask;
 
@@ -91,7 +90,7 @@ public class SchematicCommand {
         }
         try {
             info.getSource().addEditTask(new SchematicTask(
-                Schematic.load(path), transform, skipAir, dimension
+                info.getSource().getSchematic(path), transform, skipAir, dimension
             ));
         } catch(IOException e) {
             throw new RuntimeException(e);
@@ -110,7 +109,7 @@ public class SchematicCommand {
         Matrix4d transform = new Matrix4d().setIdentity().translate(position);
         try {
             info.getSource().addEditTask(new SchematicTask(
-                Schematic.load(path), transform, skipAir, dimension
+                info.getSource().getSchematic(path), transform, skipAir, dimension
             ));
         } catch(IOException e) {
             throw new RuntimeException(e);
@@ -26,29 +26,39 @@ package cubicchunks.converter.lib.convert;
 import cubicchunks.converter.lib.IProgressListener;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Reads a world once and feeds it to one or more branches, each converting it with its own converter and writing it
+ * with its own writer. Conversion runs on a shared thread pool, while every branch has its own IO threads and bounded
+ * IO queue, so a slow writer only holds back the other branches once its queue is full.
+ *
+ * Thread counts and queue sizes are set per conversion with {@link Builder}, so several conversions can run in the
+ * same process with different settings.
+ */
 public class WorldConverter<IN, OUT> {
 
-    private static final int THREADS = Runtime.getRuntime().availableProcessors()+1;
-    private static final int CONVERT_QUEUE_SIZE = 64 * THREADS * 2;
-    private static final int IO_QUEUE_SIZE = 32 * THREADS * 10;
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors()+1;
+    public static final int DEFAULT_CONVERT_QUEUE_SIZE = 64 * DEFAULT_THREADS * 2;
+    public static final int DEFAULT_IO_QUEUE_SIZE = 32 * DEFAULT_THREADS * 10;
 
-    private final LevelInfoConverter<IN, OUT> levelConverter;
     private final ChunkDataReader<IN> reader;
-    private final ChunkDataConverter<IN, OUT> converter;
-    private final ChunkDataWriter<OUT> writer;
+    private final List<Branch<IN, ?>> branches;
+    private final int convertQueueSize;
+    private final int ioQueueSize;
+    private final ThreadFactory threadFactory;
 
     private final AtomicInteger chunkCount;
     private volatile int copyChunks;
 
     private final ArrayBlockingQueue<Runnable> convertQueueImpl;
-    private final ArrayBlockingQueue<Runnable> ioQueueImpl;
 
     private final ExecutorService convertQueue;
-    private final ExecutorService ioQueue;
 
     private volatile boolean discardConverted = false;
     private volatile boolean errored = false;
@@ -62,11 +72,23 @@ public class WorldConverter<IN, OUT> {
         ChunkDataReader<IN> reader,
         ChunkDataConverter<IN, OUT> converter,
         ChunkDataWriter<OUT> writer) {
+        this(reader, Collections.singletonList(new Branch<>(levelConverter, converter, writer)));
+    }
 
-        this.levelConverter = levelConverter;
+    public WorldConverter(ChunkDataReader<IN> reader, List<Branch<IN, ?>> branches) {
+        this(reader, branches, DEFAULT_THREADS, DEFAULT_CONVERT_QUEUE_SIZE, DEFAULT_IO_QUEUE_SIZE, Executors.defaultThreadFactory());
+    }
+
+    private WorldConverter(ChunkDataReader<IN> reader, List<Branch<IN, ?>> branches,
+                           int threads, int convertQueueSize, int ioQueueSize, ThreadFactory threadFactory) {
+        if (branches.isEmpty()) {
+            throw new IllegalArgumentException("No outputs to convert to");
+        }
         this.reader = reader;
-        this.converter = converter;
-        this.writer = writer;
+        this.branches = new ArrayList<>(branches);
+        this.convertQueueSize = convertQueueSize;
+        this.ioQueueSize = ioQueueSize;
+        this.threadFactory = threadFactory;
 
         RejectedExecutionHandler handler = ((r, executor) -> {
             try {
@@ -81,13 +103,16 @@ public class WorldConverter<IN, OUT> {
 
         chunkCount = new AtomicInteger(0);
 
-        convertQueueImpl = new ArrayBlockingQueue<>(CONVERT_QUEUE_SIZE);
-        convertQueue = new ThreadPoolExecutor(THREADS, THREADS, 1000L, TimeUnit.MILLISECONDS, convertQueueImpl);
+        convertQueueImpl = new ArrayBlockingQueue<>(convertQueueSize);
+        convertQueue = new ThreadPoolExecutor(threads, threads, 1000L, TimeUnit.MILLISECONDS, convertQueueImpl, threadFactory);
         ((ThreadPoolExecutor)convertQueue).setRejectedExecutionHandler(handler);
 
-        ioQueueImpl = new ArrayBlockingQueue<>(IO_QUEUE_SIZE);
-        ioQueue = new ThreadPoolExecutor(1, 1, 1000L, TimeUnit.MILLISECONDS, ioQueueImpl);
-        ((ThreadPoolExecutor)ioQueue).setRejectedExecutionHandler(handler);
+        for (Branch<IN, ?> branch : this.branches) {
+            branch.ioQueueImpl = new ArrayBlockingQueue<>(ioQueueSize);
+            // region writes synchronize on the region, so more write threads per output would only wait for each other
+            branch.ioQueue = new ThreadPoolExecutor(1, 1, 1000L, TimeUnit.MILLISECONDS, branch.ioQueueImpl, threadFactory);
+            ((ThreadPoolExecutor) branch.ioQueue).setRejectedExecutionHandler(handler);
+        }
     }
 
     public void convert(IProgressListener progress) throws IOException {
@@ -99,7 +124,9 @@ public class WorldConverter<IN, OUT> {
         final Object object = new Object();
         try {
             reader.loadChunks(inData -> {
-                convertQueue.submit(new ChunkConvertTask<>(converter, writer, progress, this, ioQueue, inData));
+                for (Branch<IN, ?> branch : branches) {
+                    convertQueue.submit(branch.convertTask(progress, this, inData));
+                }
                 synchronized(object) {
                     copyChunks++;
                 }
@@ -125,33 +152,39 @@ public class WorldConverter<IN, OUT> {
                 shutdownNow = true;
             }
             // convert finished, now shut down IO
-            if (shutdownNow) {
-                ioQueue.shutdownNow();
-            } else {
-                ioQueue.shutdown();
+            for (Branch<IN, ?> branch : branches) {
+                if (shutdownNow) {
+                    branch.ioQueue.shutdownNow();
+                } else {
+                    branch.ioQueue.shutdown();
+                }
             }
 
-            try {
-                ioQueue.awaitTermination(Long.MAX_VALUE / 2, TimeUnit.NANOSECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                ioQueue.shutdownNow();
+            for (Branch<IN, ?> branch : branches) {
+                try {
+                    branch.ioQueue.awaitTermination(Long.MAX_VALUE / 2, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                    branch.ioQueue.shutdownNow();
+                }
             }
             try {
                 reader.close();
             } catch (Exception e) {
                 e.printStackTrace();
             }
-            try {
-                writer.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            if (discardConverted) {
+            for (Branch<IN, ?> branch : branches) {
                 try {
-                    writer.discardData();
-                } catch (IOException ex) {
-                    ex.printStackTrace();
+                    branch.writer.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                if (discardConverted) {
+                    try {
+                        branch.writer.discardData();
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
                 }
             }
         }
@@ -159,7 +192,9 @@ public class WorldConverter<IN, OUT> {
             errored = false;
         }
         if (!errored) {
-            levelConverter.convert();
+            for (Branch<IN, ?> branch : branches) {
+                branch.levelConverter.convert();
+            }
         }
         double dt = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
         System.out.println("Conversion time = " + dt);
@@ -178,19 +213,23 @@ public class WorldConverter<IN, OUT> {
     }
 
     public int getConvertBufferMaxSize() {
-        return CONVERT_QUEUE_SIZE;
+        return convertQueueSize;
     }
 
     public int getIOBufferFill() {
-        return ioQueueImpl.size();
+        int fill = 0;
+        for (Branch<IN, ?> branch : branches) {
+            fill += branch.ioQueueImpl.size();
+        }
+        return fill;
     }
 
     public int getIOBufferMaxSize() {
-        return IO_QUEUE_SIZE;
+        return ioQueueSize * branches.size();
     }
 
     private void startCounting(IProgressListener progress) {
-        countingThread = new Thread(() -> {
+        countingThread = threadFactory.newThread(() -> {
             try {
                 reader.countInputChunks(() -> {
                     int v = chunkCount.getAndIncrement();
@@ -203,7 +242,8 @@ public class WorldConverter<IN, OUT> {
             } catch (InterruptedException e) {
                 // stop
             }
-        }, "Chunk and File counting thread");
+        });
+        countingThread.setName("Chunk and File counting thread");
         countingThread.start();
     }
 
@@ -221,7 +261,9 @@ public class WorldConverter<IN, OUT> {
                 case STOP_KEEP_DATA:
                     reader.stop();
                     convertQueue.shutdownNow();
-                    ioQueue.shutdownNow();
+                    for (Branch<IN, ?> branch : branches) {
+                        branch.ioQueue.shutdownNow();
+                    }
                     // fallthrough
                 case IGNORE_ALL:
                     errored = true;
@@ -229,11 +271,103 @@ public class WorldConverter<IN, OUT> {
         }
     }
 
+    public static class Builder<IN> {
+
+        private ChunkDataReader<IN> reader;
+        private final List<Branch<IN, ?>> branches = new ArrayList<>();
+        private int threads = DEFAULT_THREADS;
+        private int convertQueueSize = -1;
+        private int ioQueueSize = -1;
+        private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+        public Builder<IN> setReader(ChunkDataReader<IN> reader) {
+            this.reader = reader;
+            return this;
+        }
+
+        public <OUT> Builder<IN> addOutput(LevelInfoConverter<IN, OUT> levelConverter, ChunkDataConverter<IN, OUT> converter, ChunkDataWriter<OUT> writer) {
+            this.branches.add(new Branch<>(levelConverter, converter, writer));
+            return this;
+        }
+
+        public Builder<IN> setConvertThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be positive, got " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Defaults to a size proportional to the number of convert threads.
+         */
+        public Builder<IN> setConvertQueueSize(int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("size must be positive, got " + size);
+            }
+            this.convertQueueSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the size of the IO queue of each output. Defaults to a size proportional to the number of convert threads.
+         */
+        public Builder<IN> setIOQueueSize(int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("size must be positive, got " + size);
+            }
+            this.ioQueueSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the factory all threads of the conversion are created with, for example to name them or make them daemon
+         * threads.
+         */
+        public Builder<IN> setThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        public WorldConverter<IN, ?> build() {
+            if (reader == null) {
+                throw new IllegalStateException("No reader set");
+            }
+            // same ratios as the defaults
+            int convertQueue = convertQueueSize > 0 ? convertQueueSize : 64 * threads * 2;
+            int ioQueue = ioQueueSize > 0 ? ioQueueSize : 32 * threads * 10;
+            return new WorldConverter<>(reader, branches, threads, convertQueue, ioQueue, threadFactory);
+        }
+    }
+
+    /**
+     * One output of a conversion: the converter, the writer it writes to and the level data conversion for it.
+     * Converters of different branches get the same input data at the same time, so they must not modify it.
+     */
+    public static class Branch<IN, OUT> {
+        private final LevelInfoConverter<IN, OUT> levelConverter;
+        private final ChunkDataConverter<IN, OUT> converter;
+        private final ChunkDataWriter<OUT> writer;
+
+        private ArrayBlockingQueue<Runnable> ioQueueImpl;
+        private ExecutorService ioQueue;
+
+        public Branch(LevelInfoConverter<IN, OUT> levelConverter, ChunkDataConverter<IN, OUT> converter, ChunkDataWriter<OUT> writer) {
+            this.levelConverter = levelConverter;
+            this.converter = converter;
+            this.writer = writer;
+        }
+
+        private ChunkConvertTask<IN, OUT> convertTask(IProgressListener progress, WorldConverter<?, ?> worldConv, IN inData) {
+            return new ChunkConvertTask<>(converter, writer, progress, worldConv, ioQueue, inData);
+        }
+    }
+
     private static class ChunkConvertTask<IN, OUT> implements Callable<Void> {
         private final ChunkDataConverter<IN, OUT> converter;
         private final ChunkDataWriter<OUT> writer;
         private final IProgressListener progress;
-        private WorldConverter<IN, OUT> worldConv;
+        private WorldConverter<?, ?> worldConv;
         private final ExecutorService ioExecutor;
         private final IN toConvert;
 
@@ -241,7 +375,7 @@ public class WorldConverter<IN, OUT> {
             ChunkDataConverter<IN, OUT> converter,
             ChunkDataWriter<OUT> writer,
             IProgressListener progress,
-            WorldConverter<IN, OUT> worldConv,
+            WorldConverter<?, ?> worldConv,
             ExecutorService ioExecutor,
             IN toConvert) {
 
@@ -0,0 +1,92 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.anvil2bigCubeCc;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ChunkDataConverter;
+import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCDataConverter;
+import cubicchunks.converter.lib.convert.cc2bigCubeCc.Cc2BigCubeCcDataConverter;
+import cubicchunks.converter.lib.convert.data.AnvilChunkData;
+import cubicchunks.converter.lib.convert.data.AnvilChunkGroupData;
+import cubicchunks.converter.lib.convert.data.CubicChunksBigCube112Data;
+import cubicchunks.converter.lib.convert.data.CubicChunksProtoBigCubeData;
+import cubicchunks.converter.lib.util.BigCubeCoords;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Converts vanilla chunks straight to 1.17 proto big cubes, without writing and reading a 1.12 cubic chunks world in
+ * between. Each vanilla section becomes a 1.12 cube as in {@link Anvil2CCDataConverter}, and the 8 cubes of each big
+ * cube are packed as in {@link Cc2BigCubeCcDataConverter}. Like the two step conversion, big cubes with a missing
+ * section are skipped.
+ */
+public class Anvil2BigCubeCcDataConverter implements ChunkDataConverter<AnvilChunkGroupData, CubicChunksProtoBigCubeData> {
+
+    private final Anvil2CCDataConverter anvil2cc;
+    private final Cc2BigCubeCcDataConverter cc2BigCube = new Cc2BigCubeCcDataConverter();
+
+    public Anvil2BigCubeCcDataConverter(ConverterConfig config) {
+        this.anvil2cc = new Anvil2CCDataConverter(config);
+    }
+
+    public static ConverterConfig loadConfig(Consumer<Throwable> errorHandler) {
+        return Anvil2CCDataConverter.loadConfig(errorHandler);
+    }
+
+    @Override public Set<CubicChunksProtoBigCubeData> convert(AnvilChunkGroupData input) {
+        Map<Integer, ByteBuffer[]> bigCubes = new HashMap<>();
+        Map<Integer, Integer> presentSections = new HashMap<>();
+        for (AnvilChunkData chunk : input.getChunks()) {
+            if (chunk == null) {
+                continue;
+            }
+            int sectionX = chunk.getPosition().getEntryX();
+            int sectionZ = chunk.getPosition().getEntryZ();
+            anvil2cc.convertCubes(chunk).forEach((sectionY, cube) -> {
+                int bigCubeY = BigCubeCoords.sectionToCube(sectionY);
+                int index = BigCubeCoords.sectionToIndex32(sectionX, sectionY, sectionZ);
+                bigCubes.computeIfAbsent(bigCubeY, y -> new ByteBuffer[8])[index] = cube;
+                presentSections.merge(bigCubeY, 1 << index, (a, b) -> a | b);
+            });
+        }
+
+        Set<CubicChunksProtoBigCubeData> out = new HashSet<>();
+        bigCubes.forEach((bigCubeY, cubes) -> {
+            EntryLocation3D pos = new EntryLocation3D(input.getGroupX(), bigCubeY, input.getGroupZ());
+            int present = presentSections.get(bigCubeY);
+            if (present != 0xFF) {
+                System.out.println("Skipping incomplete cube at " + pos + " sections = " + Integer.toBinaryString(present));
+                return;
+            }
+            out.addAll(cc2BigCube.convert(new CubicChunksBigCube112Data(input.getDimension(), pos, null, cubes)));
+        });
+        return out;
+    }
+}
@@ -24,10 +24,12 @@
 package cubicchunks.converter.lib.convert.anvil2cc;
 
 import com.flowpowered.nbt.*;
+import com.flowpowered.nbt.stream.NBTOutputStream;
 import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
+import cubicchunks.converter.lib.util.CubeNbtEncoder;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 
@@ -40,7 +42,6 @@ import java.util.*;
 import java.util.function.Consumer;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
 
 // TODO: use kyori NBT
 public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData, CubicChunksColumnData> {
@@ -120,6 +121,17 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
         }
     }
 
+    /**
+     * Converts only the sections of a chunk into cubes, without extracting the column data.
+     */
+    public Map<Integer, ByteBuffer> convertCubes(AnvilChunkData input) {
+        try {
+            return extractCubeData(input.getData());
+        } catch (IOException impossible) {
+            throw new Error("ByteArrayInputStream doesn't throw IOException", impossible);
+        }
+    }
+
 
     private ByteBuffer extractColumnData(ByteBuffer vanillaData) throws IOException {
         ByteArrayInputStream in = new ByteArrayInputStream(vanillaData.array());
@@ -213,16 +225,11 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
 
     private Map<Integer, ByteBuffer> extractCubeData(ByteBuffer vanillaData) throws IOException {
         ByteArrayInputStream in = new ByteArrayInputStream(vanillaData.array());
-        Map<Integer, CompoundTag> tags = extractCubeData(Utils.readCompressed(in));
-        Map<Integer, ByteBuffer> bytes = new HashMap<>();
-        for (Integer y : tags.keySet()) {
-            bytes.put(y, Utils.writeCompressed(tags.get(y), false));
-        }
-        return bytes;
+        return extractCubeData(Utils.readCompressed(in));
     }
 
     @SuppressWarnings("unchecked")
-    private Map<Integer, CompoundTag> extractCubeData(CompoundTag srcRootTag) {
+    private Map<Integer, ByteBuffer> extractCubeData(CompoundTag srcRootTag) throws IOException {
         /*
          *
          * Vanilla Chunk NBT structure:
@@ -278,60 +285,74 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
          *   |- LastHeightMap
          */
         CompoundMap srcRoot = srcRootTag.getValue();
-        Map<Integer, CompoundTag> tags = new HashMap<>();
+        Map<Integer, ByteBuffer> cubes = new HashMap<>();
         CompoundMap srcLevel = ((CompoundTag) srcRoot.get("Level")).getValue();
         int x = (Integer) srcLevel.get("xPos").getValue();
         int z = (Integer) srcLevel.get("zPos").getValue();
+        Tag<?> dataVersion = srcRoot.get("DataVersion");
+
+        ByteTag populatedTag = (ByteTag) srcLevel.get("TerrainPopulated");
+        boolean populated = populatedTag != null && populatedTag.getValue() != 0;
+        ByteTag lightPopulatedTag = (ByteTag) srcLevel.get("LightPopulated");
+        boolean lightPopulated = lightPopulatedTag != null && lightPopulatedTag.getValue() != 0;
+        int[] heightMap = (int[]) srcLevel.get("HeightMap").getValue();
+
         //noinspection unchecked
         for (CompoundTag srcSection : ((ListTag<CompoundTag>) srcLevel.get("Sections")).getValue()) {
             int y = ((ByteTag) srcSection.getValue().get("Y")).getValue();
+            CompoundMap section = fixSection(srcSection).getValue();
+
+            CubeNbtEncoder cube = new CubeNbtEncoder(x, y, z)
+                    .populated(populated, populated) // TODO: handle fullyPopulated properly
+                    .surfaceTracked(false) // so that cubic chunks can re-make surface tracking data on it's own
+                    .initLightDone(lightPopulated)
+                    .section(
+                            byteArray(section, "Blocks"),
+                            byteArray(section, "Data"),
+                            byteArray(section, "Add"),
+                            byteArray(section, "Add2"),
+                            byteArray(section, "BlockLight"),
+                            byteArray(section, "SkyLight"))
+                    .lastHeightMap(heightMap);
+            if (dataVersion != null) {
+                cube.dataVersion(((Number) dataVersion.getValue()).intValue());
+            }
 
-            CompoundMap root = new CompoundMap();
-            {
-                if (srcRoot.containsKey("DataVersion")) {
-                    root.put(srcRoot.get("DataVersion"));
-                }
-                CompoundMap level = new CompoundMap();
-
-                {
-                    level.put(new ByteTag("v", (byte) 1));
-                    level.put(new IntTag("x", x));
-                    level.put(new IntTag("y", y));
-                    level.put(new IntTag("z", z));
-
-                    ByteTag populated = (ByteTag) srcLevel.get("TerrainPopulated");
-                    level.put(new ByteTag("populated", populated == null ? 0 : populated.getValue()));
-                    level.put(new ByteTag("fullyPopulated", populated == null ? 0 : populated.getValue())); // TODO: handle this properly
-                    level.put(new ByteTag("isSurfaceTracked", (byte) 0)); // so that cubic chunks can re-make surface tracking data on it's own
-
-                    ByteTag lightPopulated = (ByteTag) srcLevel.get("LightPopulated");
-                    level.put(new ByteTag("initLightDone", lightPopulated == null ? 0 : lightPopulated.getValue()));
-
-                    // the vanilla section has additional Y tag, it will be ignored by cubic chunks
-                    level.put(new ListTag<>("Sections", CompoundTag.class, singletonList(fixSection(srcSection))));
-
-                    level.put(filterEntities((ListTag<CompoundTag>) srcLevel.get("Entities"), y));
-                    ListTag<?> tileEntities = filterTileEntities((ListTag<?>) srcLevel.get("TileEntities"), y);
-                    if (fixMissingTileEntities) {
-                        tileEntities = addMissingTileEntities(x, y, z, (ListTag<CompoundTag>) tileEntities, srcSection);
-                    }
-                    level.put(tileEntities);
-                    if (srcLevel.containsKey("TileTicks")) {
-                        level.put(filterTileTicks((ListTag<CompoundTag>) srcLevel.get("TileTicks"), y));
-                    }
-                    level.put(makeLightingInfo(srcLevel));
-                }
-                root.put(new CompoundTag("Level", level));
+            ListTag<?> tileEntities = filterTileEntities((ListTag<?>) srcLevel.get("TileEntities"), y);
+            if (fixMissingTileEntities) {
+                tileEntities = addMissingTileEntities(x, y, z, (ListTag<CompoundTag>) tileEntities, srcSection);
             }
-            tags.put(y, new CompoundTag("", root));
+            cube.entities(
+                    encodeTag(filterEntities((ListTag<CompoundTag>) srcLevel.get("Entities"), y)),
+                    encodeTag(tileEntities),
+                    srcLevel.containsKey("TileTicks") ? encodeTag(filterTileTicks((ListTag<CompoundTag>) srcLevel.get("TileTicks"), y)) : null);
+
+            cubes.put(y, cube.encode());
         }
         // make sure the 0-15 range is there because it's using vanilla generator which expects it to be the case
         for (int y = 0; y < 16; y++) {
-            if (!tags.containsKey(y)) {
-                tags.put(y, Utils.emptyCube(x, y, z));
+            if (!cubes.containsKey(y)) {
+                cubes.put(y, new CubeNbtEncoder(x, y, z)
+                        .populated(true, true)
+                        .surfaceTracked(true) // it's empty, no need to re-track
+                        .section(new byte[4096], new byte[2048], null, null, new byte[2048], new byte[2048])
+                        .encode());
             }
         }
-        return tags;
+        return cubes;
+    }
+
+    private static byte[] byteArray(CompoundMap map, String name) {
+        Tag<?> tag = map.get(name);
+        return tag == null ? null : ((ByteArrayTag) tag).getValue();
+    }
+
+    private static byte[] encodeTag(Tag<?> tag) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NBTOutputStream out = new NBTOutputStream(bytes, false)) {
+            out.writeTag(tag);
+        }
+        return bytes.toByteArray();
     }
 
     private ListTag<CompoundTag> addMissingTileEntities(int cubeX, int cubeY, int cubeZ, ListTag<CompoundTag> tileEntities, CompoundTag srcSection) {
@@ -394,13 +415,6 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
         return srcSection;
     }
 
-    private CompoundTag makeLightingInfo(CompoundMap srcLevel) {
-        IntArrayTag heightmap = new IntArrayTag("LastHeightMap", (int[]) srcLevel.get("HeightMap").getValue());
-        CompoundMap lightingInfoMap = new CompoundMap();
-        lightingInfoMap.put(heightmap);
-        return new CompoundTag("LightingInfo", lightingInfoMap);
-    }
-
     @SuppressWarnings("unchecked")
     private ListTag<CompoundTag> filterEntities(ListTag<CompoundTag> entities, int cubeY) {
         double yMin = cubeY * 16;
@@ -0,0 +1,55 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.anvil2ccrelocating;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCDataConverter;
+import cubicchunks.converter.lib.convert.cc2ccrelocating.CC2CCRelocatingDataConverter;
+import cubicchunks.converter.lib.convert.chain.ChainedDataConverter;
+import cubicchunks.converter.lib.convert.chain.ColumnToPriorityColumnConverter;
+import cubicchunks.converter.lib.convert.data.AnvilChunkData;
+import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
+import cubicchunks.converter.lib.util.edittask.EditTask;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Converts a vanilla world to cubic chunks and runs the relocating config on it in the same pass.
+ */
+public class Anvil2CCRelocatingDataConverter extends ChainedDataConverter<AnvilChunkData, PriorityCubicChunksColumnData, PriorityCubicChunksColumnData> {
+
+    public Anvil2CCRelocatingDataConverter(ConverterConfig config) {
+        super(chain(new Anvil2CCDataConverter(config), new ColumnToPriorityColumnConverter(relocations(config))), new CC2CCRelocatingDataConverter(config));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<EditTask> relocations(ConverterConfig config) {
+        return config.hasValue("relocations") ? (List<EditTask>) config.getValue("relocations") : null;
+    }
+
+    public static ConverterConfig loadConfig(Consumer<Throwable> errorHandler) {
+        return mergeConfigs(Anvil2CCDataConverter.loadConfig(errorHandler), CC2CCRelocatingDataConverter.loadConfig(errorHandler));
+    }
+}
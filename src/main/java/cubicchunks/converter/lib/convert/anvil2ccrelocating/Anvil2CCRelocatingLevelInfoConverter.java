@@ -0,0 +1,48 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.anvil2ccrelocating;
+
+import cubicchunks.converter.lib.convert.LevelInfoConverter;
+import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCLevelInfoConverter;
+import cubicchunks.converter.lib.convert.data.AnvilChunkData;
+import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Relocating copies the level data unchanged, so only the vanilla to cubic chunks step changes it.
+ */
+public class Anvil2CCRelocatingLevelInfoConverter implements LevelInfoConverter<AnvilChunkData, PriorityCubicChunksColumnData> {
+
+    private final Anvil2CCLevelInfoConverter anvil2cc;
+
+    public Anvil2CCRelocatingLevelInfoConverter(Path srcDir, Path dstDir) {
+        this.anvil2cc = new Anvil2CCLevelInfoConverter(srcDir, dstDir);
+    }
+
+    @Override public void convert() throws IOException {
+        anvil2cc.convert();
+    }
+}
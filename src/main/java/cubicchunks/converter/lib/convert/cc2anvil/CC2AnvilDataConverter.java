@@ -32,41 +32,46 @@ import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.MultilayerAnvilChunkData;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.regionlib.impl.EntryLocation3D;
 import cubicchunks.regionlib.impl.MinecraftChunkLocation;
 
 import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.zip.ZipException;
 
 import javax.annotation.Nullable;
 
 public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColumnData, MultilayerAnvilChunkData> {
 
-    private static final boolean FORCE_RECOMPUTE_HEIGHTMAP = "true".equalsIgnoreCase(System.getProperty("cc2anvil.recomputeHeightmap", "true"));
-    // generated with the following code:
-    /*
-        itSet bs = new BitSet(256);
-        for (int i = 0; i < 256; i++) {
-            Block block = Block.REGISTRY.getObjectById(i);
-            if (block == null) continue;
-            if (block.getLightOpacity(block.getDefaultState()) != 0) {
-                bs.set(i);
-            }
-        }
-        StringBuilder sb = new StringBuilder("BitSet OPAQUE_BLOCK = BitSet.valueOf(new long[] {");
-        for (long l : bs.toLongArray()) {
-            sb.append(l).append("L, ");
-        }
-        sb.append("});");
-    */
-    private static final BitSet OPAQUE_BLOCK = BitSet.valueOf(new long[]{8584984626151289790L, 8792557671616448008L, 33907971612214243L, -6917537823633605120L});
+    // config key to recompute the height map from the blocks instead of converting the cubic chunks one. Defaults to the
+    // cc2anvil.recomputeHeightmap system property, on if it's not set
+    public static final String RECOMPUTE_HEIGHTMAP = "recomputeHeightmap";
+    // config key to drop layers without blocks, entities and ticks. Defaults to the cc2anvil.dropEmptyLayers system
+    // property, off if it's not set, as vanilla would generate new terrain in place of dropped chunks
+    public static final String DROP_EMPTY_LAYERS = "dropEmptyLayers";
+    private static final boolean DEFAULT_RECOMPUTE_HEIGHTMAP = "true".equalsIgnoreCase(System.getProperty("cc2anvil.recomputeHeightmap", "true"));
+    private static final boolean DEFAULT_DROP_EMPTY_LAYERS = "true".equalsIgnoreCase(System.getProperty("cc2anvil.dropEmptyLayers", "false"));
+    // an empty cube, even with full sky light, compresses to much less than this
+    private static final int EMPTY_CUBE_MAX_COMPRESSED_SIZE = 1024;
+    // converter made air cubes only differ in their coordinates, which barely changes the compressed size
+    private static final int AIR_CUBE_COMPRESSED_SIZE = Utils.createAirCubeBuffer(new EntryLocation3D(0, 0, 0)).remaining();
+    private static final int AIR_CUBE_SIZE_SLACK = 16;
+
+    private final ConverterConfig config;
+    private final boolean recomputeHeightmap;
+    private final boolean dropEmptyLayers;
+
+    public CC2AnvilDataConverter(ConverterConfig config) {
+        this.config = config;
+        this.recomputeHeightmap = config.getBool(RECOMPUTE_HEIGHTMAP, DEFAULT_RECOMPUTE_HEIGHTMAP);
+        this.dropEmptyLayers = config.getBool(DROP_EMPTY_LAYERS, DEFAULT_DROP_EMPTY_LAYERS);
+    }
 
     @Override public Set<MultilayerAnvilChunkData> convert(CubicChunksColumnData input) {
-        Map<Integer, AnvilChunkData> data = new HashMap<>();
         MinecraftChunkLocation chunkPos = new MinecraftChunkLocation(input.getPosition().getEntryX(), input.getPosition().getEntryZ(), "mca");
 
         // split the data into world layers
@@ -75,25 +80,42 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
             ByteBuffer[] sections = worldLayers.computeIfAbsent(toWorldLayerY(key), y -> new ByteBuffer[16]);
             sections[toLayerSection(key)] = value;
         });
-        // convert each world layer separately
-        worldLayers.forEach((key, value) ->
-            data.put(key, new AnvilChunkData(input.getDimension(), chunkPos, convertWorldLayer(input.getColumnData(), value, key)))
+
+        // the column is shared by all layers, decode it only once
+        CompoundTag columnTag;
+        try {
+            columnTag = input.getColumnData() == null ? null : readCompressedCC(new ByteArrayInputStream(input.getColumnData().array()));
+        } catch (ZipException e) {
+            e.printStackTrace();
+            Map<Integer, AnvilChunkData> data = new HashMap<>();
+            worldLayers.keySet().forEach(key -> data.put(key, new AnvilChunkData(input.getDimension(), chunkPos, null)));
+            return Collections.singleton(new MultilayerAnvilChunkData(data));
+        } catch (IOException e) {
+            throw new Error("ByteArrayInputStream doesn't throw IOException", e);
+        }
+
+        Map<Integer, AnvilChunkData> data = new HashMap<>();
+        worldLayers.forEach((layerIdx, cubes) ->
+            data.put(layerIdx, new AnvilChunkData(input.getDimension(), chunkPos, convertWorldLayer(columnTag, cubes, chunkPos, layerIdx)))
         );
         return Collections.singleton(new MultilayerAnvilChunkData(data));
     }
 
-    private ByteBuffer convertWorldLayer(@Nullable ByteBuffer columnData, ByteBuffer[] cubes, int layerIdx) {
+    private ByteBuffer convertWorldLayer(@Nullable CompoundTag columnTag, ByteBuffer[] cubes, MinecraftChunkLocation chunkPos, int layerIdx) {
         try {
-            if (dropChunk(cubes, layerIdx)) {
+            LayerCheck check = checkLayer(cubes, chunkPos, layerIdx);
+            if (check == LayerCheck.DROP) {
                 return null;
             }
-            CompoundTag columnTag = columnData == null ? null : readCompressedCC(new ByteArrayInputStream(columnData.array()));
             CompoundTag[] cubeTags = new CompoundTag[cubes.length];
             for (int i = 0; i < cubes.length; i++) {
                 if (cubes[i] != null) {
                     cubeTags[i] = readCompressedCC(new ByteArrayInputStream(cubes[i].array()));
                 }
             }
+            if (check == LayerCheck.INSPECT && isEmptyLayer(cubeTags)) {
+                return null;
+            }
             CompoundTag tag = convertWorldLayer(columnTag, cubeTags, layerIdx);
             return writeCompressed(tag, true);
         } catch (ZipException e) {
@@ -104,8 +126,85 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
         }
     }
 
-    private boolean dropChunk(ByteBuffer[] cubes, int layerIdx) {
-        return false;
+    /**
+     * Decides what to do with the layer without decompressing any cube. Layers without any cubes are always dropped.
+     * When empty layers are dropped, a layer is kept if any of its cubes is bigger than an empty cube can compress to,
+     * and dropped if all of its cubes are air cubes made by the converter. Anything else has to be inspected.
+     */
+    private LayerCheck checkLayer(ByteBuffer[] cubes, MinecraftChunkLocation chunkPos, int layerIdx) {
+        boolean anyCube = false;
+        boolean allTemplateAir = true;
+        for (int i = 0; i < cubes.length; i++) {
+            ByteBuffer cube = cubes[i];
+            if (cube == null) {
+                continue;
+            }
+            anyCube = true;
+            if (!dropEmptyLayers || cube.remaining() > EMPTY_CUBE_MAX_COMPRESSED_SIZE) {
+                return LayerCheck.KEEP;
+            }
+            if (allTemplateAir) {
+                allTemplateAir = isTemplateAir(cube, chunkPos.getEntryX(), layerIdx * 16 + i, chunkPos.getEntryZ());
+            }
+        }
+        return !anyCube || allTemplateAir ? LayerCheck.DROP : LayerCheck.INSPECT;
+    }
+
+    /**
+     * Returns true if the cube is byte for byte the air cube {@link Utils#createAirCubeBuffer} makes for that position,
+     * like the cubes created for schematic pastes. Only cubes of the same compressed size are compared.
+     */
+    private static boolean isTemplateAir(ByteBuffer cube, int x, int y, int z) {
+        if (Math.abs(cube.remaining() - AIR_CUBE_COMPRESSED_SIZE) > AIR_CUBE_SIZE_SLACK) {
+            return false;
+        }
+        return cube.equals(Utils.createAirCubeBuffer(new EntryLocation3D(x, y, z)));
+    }
+
+    private enum LayerCheck {
+        DROP, KEEP, INSPECT
+    }
+
+    /**
+     * Returns true if all the cubes contain only air and no entities, tile entities or tile ticks
+     */
+    private boolean isEmptyLayer(CompoundTag[] cubes) {
+        for (CompoundTag cube : cubes) {
+            if (cube == null) {
+                continue;
+            }
+            CompoundMap level = (CompoundMap) cube.getValue().get("Level").getValue();
+            if (!isEmptyList(level.get("Entities")) || !isEmptyList(level.get("TileEntities")) || !isEmptyList(level.get("TileTicks"))) {
+                return false;
+            }
+            Tag<?> sections = level.get("Sections");
+            if (sections == null) {
+                continue;
+            }
+            for (Object section : (List<?>) sections.getValue()) {
+                CompoundMap sectionMap = ((CompoundTag) section).getValue();
+                if (!isZero(sectionMap.get("Blocks")) || !isZero(sectionMap.get("Add"))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmptyList(@Nullable Tag<?> tag) {
+        return tag == null || ((List<?>) tag.getValue()).isEmpty();
+    }
+
+    private static boolean isZero(@Nullable Tag<?> tag) {
+        if (tag == null) {
+            return true;
+        }
+        for (byte b : (byte[]) tag.getValue()) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private CompoundTag convertWorldLayer(@Nullable CompoundTag column, CompoundTag[] cubes, int layerIdx) {
@@ -225,7 +324,7 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
          *  |- LightingInfo
          *   |- LastHeightMap
          */
-        boolean haveHeightmap = FORCE_RECOMPUTE_HEIGHTMAP;
+        boolean haveHeightmap = false;
         if (column != null) {
             CompoundMap columnLevel = (CompoundMap) column.getValue().get("Level").getValue();
             for (Tag<?> tag : columnLevel) {
@@ -237,10 +336,13 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
                         level.put(renamedInt(tag, "zPos"));
                         break;
                     case "OpacityIndex":
-                        Tag<?> heightMap = getHeightMap(tag, layerIdx);
+                        if (recomputeHeightmap) {
+                            break;
+                        }
+                        int[] heightMap = CC2AnvilHeightMaps.fromOpacityIndex((byte[]) tag.getValue(), layerIdx);
                         if (heightMap != null) {
                             haveHeightmap = true;
-                            level.put(heightMap);
+                            level.put(new IntArrayTag("HeightMap", heightMap));
                         }
                         break;
                     default:
@@ -249,27 +351,7 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
             }
         }
         if (!haveHeightmap) {
-            // TODO: use existing heightmap? Is it safe?
-            int[] heights = new int[256];
-            for (CompoundTag cube : cubes) {
-                CompoundMap cubeLevel = (CompoundMap) cube.getValue().get("Level").getValue();
-                if (cubeLevel == null) {
-                    continue;
-                }
-                int cubeYBase = ((IntTag) cubeLevel.get("yPos")).getValue() << 4;
-                @SuppressWarnings("unchecked") ListTag<CompoundTag> sections = (ListTag<CompoundTag>) cubeLevel.get("Sections");
-                CompoundMap section = sections.getValue().get(0).getValue();
-                byte[] blocks = ((ByteArrayTag) section.get("Blocks")).getValue();
-                for (int i = 0; i < blocks.length; i++) {
-                    if (OPAQUE_BLOCK.get(blocks[i])) {
-                        int y = (i >>> 8 | cubeYBase) + 1;
-                        if (y > heights[i & 0xFF]) {
-                            heights[i & 0xFF] = y;
-                        }
-                    }
-                }
-            }
-            level.put(new IntArrayTag("HeightMap", heights));
+            level.put(new IntArrayTag("HeightMap", CC2AnvilHeightMaps.fromBlocks(cubes)));
         }
 
         for (CompoundTag cube : cubes) {
@@ -414,34 +496,15 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
         return new ByteTag("TerrainPopulated", (byte) 1);
     }
 
-    private Tag<?> getHeightMap(Tag<?> opacityIndex, int layerIdx) {
-        byte[] array = (byte[]) opacityIndex.getValue();
-        int[] output = new int[256];
-        ByteArrayInputStream buf = new ByteArrayInputStream(array);
-        try (DataInputStream in = new DataInputStream(buf)) {
-
-            for (int i = 0; i < output.length; i++) {
-                in.readInt(); // yMin
-                output[i] = (in.readInt() + 1) - (layerIdx * 256);
-                int segmentCount = in.readUnsignedShort();
-                for (int j = 0; j < segmentCount; j++) {
-                    in.readInt();
-                }
-            }
-        } catch (EOFException e) {
-            e.printStackTrace();
-            return null;
-        } catch (IOException e) {
-            throw new Error("ByteArrayInputStream doesn't throw IOException");
-        }
-        return new IntArrayTag("HeightMap", output);
-    }
-
     private IntTag renamedInt(Tag<?> old, String newName) {
         return new IntTag(newName, (Integer) old.getValue());
     }
 
     @Override public ConverterConfig getConfig() {
+        return config;
+    }
+
+    public static ConverterConfig loadConfig(Consumer<Throwable> errorHandler) {
         return new ConverterConfig(new HashMap<>());
     }
 
@@ -0,0 +1,159 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.cc2anvil;
+
+import com.flowpowered.nbt.ByteArrayTag;
+import com.flowpowered.nbt.CompoundMap;
+import com.flowpowered.nbt.CompoundTag;
+import com.flowpowered.nbt.Tag;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Computes vanilla heightmaps for a 256 block tall world layer, either from the column OpacityIndex or from the blocks.
+ */
+public class CC2AnvilHeightMaps {
+
+    // generated with the following code:
+    /*
+        BitSet bs = new BitSet(256);
+        for (int i = 0; i < 256; i++) {
+            Block block = Block.REGISTRY.getObjectById(i);
+            if (block == null) continue;
+            if (block.getLightOpacity(block.getDefaultState()) != 0) {
+                bs.set(i);
+            }
+        }
+        StringBuilder sb = new StringBuilder("BitSet OPAQUE_BLOCK = BitSet.valueOf(new long[] {");
+        for (long l : bs.toLongArray()) {
+            sb.append(l).append("L, ");
+        }
+        sb.append("});");
+    */
+    private static final boolean[] OPAQUE_BLOCK = toTable(BitSet.valueOf(new long[]{8584984626151289790L, 8792557671616448008L, 33907971612214243L, -6917537823633605120L}));
+
+    private static boolean[] toTable(BitSet bits) {
+        boolean[] table = new boolean[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = bits.get(i);
+        }
+        return table;
+    }
+
+    /**
+     * Reads the top block heights from a CubicChunks OpacityIndex, relative to the bottom of the given layer.
+     *
+     * @return the heightmap, or null if the OpacityIndex is truncated
+     */
+    @Nullable
+    public static int[] fromOpacityIndex(byte[] opacityIndex, int layerIdx) {
+        int[] output = new int[256];
+        ByteBuffer buf = ByteBuffer.wrap(opacityIndex);
+        int yOffset = layerIdx * 256;
+        try {
+            for (int i = 0; i < output.length; i++) {
+                buf.getInt(); // yMin
+                output[i] = (buf.getInt() + 1) - yOffset;
+                int segmentCount = buf.getShort() & 0xFFFF;
+                buf.position(buf.position() + segmentCount * Integer.BYTES);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return output;
+    }
+
+    /**
+     * Computes the heightmap of a world layer from block data. Each x/z column is scanned from the top down to the first
+     * opaque block. Blocks with ids above 255 are assumed to be opaque.
+     *
+     * @param cubes the 16 cubes of the layer, from bottom to top. Missing cubes may be null.
+     */
+    public static int[] fromBlocks(CompoundTag[] cubes) {
+        byte[][] blocks = new byte[cubes.length][];
+        byte[][] add = new byte[cubes.length][];
+        for (int i = 0; i < cubes.length; i++) {
+            CompoundMap section = getSection(cubes[i]);
+            if (section != null) {
+                blocks[i] = byteArray(section, "Blocks");
+                add[i] = byteArray(section, "Add");
+            }
+        }
+        int[] heights = new int[256];
+        for (int xz = 0; xz < 256; xz++) {
+            heights[xz] = topOpaque(blocks, add, xz);
+        }
+        return heights;
+    }
+
+    private static int topOpaque(byte[][] blocks, byte[][] add, int xz) {
+        for (int cubeIdx = blocks.length - 1; cubeIdx >= 0; cubeIdx--) {
+            byte[] cubeBlocks = blocks[cubeIdx];
+            if (cubeBlocks == null) {
+                continue;
+            }
+            byte[] cubeAdd = add[cubeIdx];
+            for (int y = 15; y >= 0; y--) {
+                int idx = y << 8 | xz;
+                if (OPAQUE_BLOCK[cubeBlocks[idx] & 0xFF] || (cubeAdd != null && (cubeAdd[idx >> 1] >> ((idx & 1) << 2) & 0xF) != 0)) {
+                    // one above the top block
+                    return (cubeIdx << 4 | y) + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Nullable
+    private static CompoundMap getSection(@Nullable CompoundTag cube) {
+        if (cube == null) {
+            return null;
+        }
+        Tag<?> level = cube.getValue().get("Level");
+        if (level == null) {
+            return null;
+        }
+        Tag<?> sections = ((CompoundMap) level.getValue()).get("Sections");
+        if (sections == null) {
+            return null;
+        }
+        List<?> sectionList = (List<?>) sections.getValue();
+        if (sectionList.isEmpty()) {
+            return null;
+        }
+        return ((CompoundTag) sectionList.get(0)).getValue();
+    }
+
+    @Nullable
+    private static byte[] byteArray(CompoundMap map, String name) {
+        Tag<?> tag = map.get(name);
+        return tag == null ? null : ((ByteArrayTag) tag).getValue();
+    }
+}
@@ -27,14 +27,16 @@ import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.DualSourceCubicChunksColumnData;
-import cubicchunks.converter.lib.util.BoundingBox;
 import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.EditTaskIndex;
 
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CC2CCDualSourceMergingDataConverter implements ChunkDataConverter<DualSourceCubicChunksColumnData, CubicChunksColumnData> {
     private final List<EditTask> relocateTasks;
+    private final Map<String, EditTaskIndex> taskIndexes = new ConcurrentHashMap<>();
 
     @SuppressWarnings("unchecked")
     public CC2CCDualSourceMergingDataConverter(ConverterConfig config) {
@@ -48,25 +50,13 @@ public class CC2CCDualSourceMergingDataConverter implements ChunkDataConverter<D
 
         if(priorityCubes != null)
             priorityCubes.forEach(inCubes::put);
-        fallbackCubes.forEach((y, cube) -> {
-            if(!inCubes.containsKey(y))
-                inCubes.put(y, cube);
-        });
+        fallbackCubes.forEach(inCubes::putIfAbsent);
 
+        EditTaskIndex taskIndex = taskIndexes.computeIfAbsent(input.getDimension().getDirectory(), dim -> new EditTaskIndex(relocateTasks, dim));
         Map<Integer, ByteBuffer> outCubes = new HashMap<>();
         inCubes.forEach((y, cube) -> {
-            for (EditTask relocateTask : relocateTasks) {
-                List<BoundingBox> srcBoxes = relocateTask.getSrcBoxes();
-                boolean foundIntersect = false;
-                for (BoundingBox box : srcBoxes) {
-                    if (box.intersects(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ())) {
-                        outCubes.put(y, cube);
-                        foundIntersect = true;
-                        break;
-                    }
-                }
-                if(foundIntersect)
-                    break;
+            if (taskIndex.isAnySrc(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ())) {
+                outCubes.put(y, cube);
             }
         });
 
@@ -0,0 +1,147 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.cc2ccmerging;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ChunkDataConverter;
+import cubicchunks.converter.lib.convert.data.RegionMergeData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Plans the merge of one region from several worlds. Only the region headers are read: each entry comes from the
+ * highest priority world that has it.
+ */
+public class CC2CCRegionMergingDataConverter implements ChunkDataConverter<RegionMergeData, RegionMergeData> {
+
+    public CC2CCRegionMergingDataConverter(ConverterConfig config) {
+    }
+
+    /**
+     * Reads the worlds to merge over the source world from mergeConfig.txt, one world directory per line, each one
+     * overriding the ones before it.
+     */
+    public static ConverterConfig loadConfig(Consumer<Throwable> throwableConsumer) {
+        ConverterConfig conf = new ConverterConfig(new HashMap<>());
+        try {
+            List<Path> sources = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get("mergeConfig.txt"))) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("//") || line.startsWith("#")) continue;
+
+                sources.add(Paths.get(line));
+            }
+            conf.set("mergeSources", sources);
+        } catch (IOException | RuntimeException e) {
+            throwableConsumer.accept(e);
+            return null;
+        }
+        return conf;
+    }
+
+    @Override public Set<RegionMergeData> convert(RegionMergeData input) {
+        int entryCount = RegionMergeData.getEntryCount(input.getRegionName());
+        int[] entrySources = new int[entryCount];
+        int[] entryLocations = new int[entryCount];
+        BitSet extEntries = new BitSet(entryCount);
+        Arrays.fill(entrySources, -1);
+
+        BitSet found = new BitSet(entryCount);
+        List<Path> sources = input.getSources();
+        try {
+            // highest priority first, so the first source with an entry wins
+            for (int source = sources.size() - 1; source >= 0 && found.cardinality() < entryCount; source--) {
+                Path dir = sources.get(source);
+                int[] header = readHeader(dir.resolve(input.getRegionName()), entryCount);
+                BitSet ext = listExtEntries(dir.resolve(input.getRegionName() + ".ext"));
+                for (int i = 0; i < entryCount; i++) {
+                    if (found.get(i) || (header[i] == 0 && !ext.get(i))) {
+                        continue;
+                    }
+                    found.set(i);
+                    entrySources[i] = source;
+                    entryLocations[i] = header[i];
+                    if (ext.get(i)) {
+                        extEntries.set(i);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.singleton(input.withPlan(entrySources, entryLocations, extEntries));
+    }
+
+    private static int[] readHeader(Path file, int entryCount) throws IOException {
+        int[] header = new int[entryCount];
+        if (!Files.exists(file)) {
+            return header;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(entryCount * Integer.BYTES);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // read the whole header
+            }
+            if (buf.hasRemaining()) {
+                return header; // empty or truncated region file
+            }
+            buf.flip();
+            buf.asIntBuffer().get(header);
+        }
+        return header;
+    }
+
+    private static BitSet listExtEntries(Path extDir) throws IOException {
+        BitSet ext = new BitSet();
+        if (!Files.isDirectory(extDir)) {
+            return ext;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(extDir)) {
+            for (Path file : stream) {
+                try {
+                    ext.set(Integer.parseInt(file.getFileName().toString()));
+                } catch (NumberFormatException e) {
+                    // not an entry
+                }
+            }
+        }
+        return ext;
+    }
+}
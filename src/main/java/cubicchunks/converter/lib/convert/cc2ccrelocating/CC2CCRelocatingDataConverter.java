@@ -32,6 +32,8 @@ import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
 import cubicchunks.converter.lib.util.*;
 import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.EditTaskIndex;
+import cubicchunks.converter.lib.util.edittask.EditTaskPlanner;
 import cubicchunks.converter.lib.util.edittask.KeepEditTask;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 
@@ -41,6 +43,7 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
@@ -50,14 +53,17 @@ import static cubicchunks.converter.lib.util.Utils.writeCompressed;
 public class CC2CCRelocatingDataConverter implements ChunkDataConverter<PriorityCubicChunksColumnData, PriorityCubicChunksColumnData> {
 
     private final List<EditTask> relocateTasks;
-    private final EditTaskContext.EditTaskConfig config;
+    private final Map<String, EditTaskIndex> taskIndexes = new ConcurrentHashMap<>();
 
     private static final Logger LOGGER = Logger.getLogger(CC2CCRelocatingDataConverter.class.getSimpleName());
 
     @SuppressWarnings("unchecked")
     public CC2CCRelocatingDataConverter(ConverterConfig config) {
         this.relocateTasks = (List<EditTask>) config.getValue("relocations");
-        this.config = new EditTaskContext.EditTaskConfig();
+    }
+
+    private EditTaskIndex taskIndex(Dimension dimension) {
+        return taskIndexes.computeIfAbsent(dimension.getDirectory(), dim -> new EditTaskIndex(relocateTasks, dim));
     }
 
     public static ConverterConfig loadConfig(Consumer<Throwable> throwableConsumer) {
@@ -82,10 +88,14 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
             EditTaskCommands.handleCommand(context, line);
         }
 
-        return context.getTasks();
+        return EditTaskPlanner.optimize(context.getTasks());
     }
 
     @Override public Set<PriorityCubicChunksColumnData> convert(PriorityCubicChunksColumnData input) {
+        if (input.isRawRegionFile()) {
+            // no task can change this region, the writer copies it as is
+            return Collections.singleton(input);
+        }
         Map<Integer, ImmutablePair<Long, ByteBuffer>> inCubes = input.getCubeData();
         Map<Integer, ImmutablePair<Long, ByteBuffer>> cubes = new HashMap<>();
 
@@ -99,30 +109,26 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
             v |= 1 << (y & 0xF);
             wholeColumns.put(y >> 4, v);
         }
+        EditTaskIndex taskIndex = taskIndex(input.getDimension());
         for(Map.Entry<Integer, ImmutablePair<Long, ByteBuffer>> entry : inCubes.entrySet()) {
             boolean anyBoxNeedsData = false;
             boolean intersectsSrcBox = false;
 
             Integer cubeY = entry.getKey();
-            for(EditTask task : relocateTasks) {
-                List<BoundingBox> srcBoxes = task.getSrcBoxes();
-                for (BoundingBox srcBox : srcBoxes) {
-                    if(srcBox.intersects(inPosition.getEntryX(), cubeY, inPosition.getEntryZ())) {
-                        if (task instanceof KeepEditTask && ((KeepEditTask) task).isColumn()) {
-                            int columnY = cubeY >> 4;
-                            int existFlags = wholeColumns.getOrDefault(columnY, 0);
-                            // for columns above vanilla keep it all
-                            // for columns below vanilla only full (so just keep all full)
-                            // for columns in vanilla range keep only those that are filled at least halfway to the top of the column
-                            intersectsSrcBox = columnY > 0 || existFlags == 0xFFFF || (columnY == 0 && (existFlags & 0xFF) == 0xFF);
-                        } else {
-                            intersectsSrcBox = true;
-                        }
-                        if(task.readsCubeData()) {
-                            anyBoxNeedsData = true;
-                            break;
-                        }
-                    }
+            for (int taskId : taskIndex.srcTasksAt(inPosition.getEntryX(), cubeY, inPosition.getEntryZ())) {
+                EditTask task = taskIndex.getTask(taskId);
+                if (task instanceof KeepEditTask && ((KeepEditTask) task).isColumn()) {
+                    int columnY = cubeY >> 4;
+                    int existFlags = wholeColumns.getOrDefault(columnY, 0);
+                    // for columns above vanilla keep it all
+                    // for columns below vanilla only full (so just keep all full)
+                    // for columns in vanilla range keep only those that are filled at least halfway to the top of the column
+                    intersectsSrcBox = columnY > 0 || existFlags == 0xFFFF || (columnY == 0 && (existFlags & 0xFF) == 0xFF);
+                } else {
+                    intersectsSrcBox = true;
+                }
+                if(task.readsCubeData()) {
+                    anyBoxNeedsData = true;
                 }
             }
             if(intersectsSrcBox) {
@@ -144,7 +150,7 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
         });
 
         try {
-            Map<Vector2i, Map<Integer, ImmutablePair<Long, CompoundTag>>> outCubeData = relocateCubeData(input.getDimension(), inCubeData, this.config);
+            Map<Vector2i, Map<Integer, ImmutablePair<Long, CompoundTag>>> outCubeData = relocateCubeData(taskIndex, inCubeData);
 
             Set<PriorityCubicChunksColumnData> columnData = new HashSet<>();
             for (Map.Entry<Vector2i, Map<Integer, ImmutablePair<Long, CompoundTag>>> entry : outCubeData.entrySet()) {
@@ -176,7 +182,7 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
         return compressedData;
     }
 
-    Map<Vector2i, Map<Integer, ImmutablePair<Long, CompoundTag>>> relocateCubeData(Dimension dimension, Map<Integer, ImmutablePair<Long, CompoundTag>> cubeDataOld, EditTaskContext.EditTaskConfig config) throws IOException {
+    Map<Vector2i, Map<Integer, ImmutablePair<Long, CompoundTag>>> relocateCubeData(EditTaskIndex taskIndex, Map<Integer, ImmutablePair<Long, CompoundTag>> cubeDataOld) throws IOException {
         Map<Vector2i, Map<Integer, ImmutablePair<Long, CompoundTag>>> tagMap = new HashMap<>();
 
         for(Map.Entry<Integer, ImmutablePair<Long, CompoundTag>> entry : cubeDataOld.entrySet()) {
@@ -186,24 +192,12 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
             int cubeY = (Integer) level.get("y").getValue();
             int cubeZ = (Integer) level.get("z").getValue();
 
-            for (EditTask task : this.relocateTasks) {
-                if (!task.handlesDimension(dimension.getDirectory())) {
-                    continue;
-                }
-                task.initialise(config);
+            for (int taskId : taskIndex.srcTasksAt(cubeX, cubeY, cubeZ)) {
+                EditTask task = taskIndex.getTask(taskId);
                 if(!task.readsCubeData()) {
                     continue;
                 }
-
-                boolean cubeIsSrc = false;
-                for (BoundingBox sourceBox : task.getSrcBoxes()) {
-                    if(sourceBox.intersects(cubeX, cubeY, cubeZ)) {
-                        cubeIsSrc = true;
-                        break;
-                    }
-                }
-                if(!cubeIsSrc)
-                    continue;
+                EditTaskContext.EditTaskConfig config = taskIndex.getConfig(taskId);
 
                 List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> outputCubes = task.actOnCube(new Vector3i(cubeX, cubeY, cubeZ), config, entry.getValue().getValue(), entry.getKey());
 
@@ -0,0 +1,87 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.chain;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ChunkDataConverter;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs two converters one after another in memory, passing every piece of data returned by the first one to the
+ * second one. Chains of more steps are built by nesting, so that a multi step conversion is a single read and write
+ * of the world instead of writing out a whole intermediate world for each step.
+ */
+public class ChainedDataConverter<IN, MID, OUT> implements ChunkDataConverter<IN, OUT> {
+
+    private final ChunkDataConverter<IN, MID> first;
+    private final ChunkDataConverter<? super MID, OUT> second;
+
+    public ChainedDataConverter(ChunkDataConverter<IN, MID> first, ChunkDataConverter<? super MID, OUT> second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public static <IN, MID, OUT> ChainedDataConverter<IN, MID, OUT> chain(ChunkDataConverter<IN, MID> first,
+            ChunkDataConverter<? super MID, OUT> second) {
+        return new ChainedDataConverter<>(first, second);
+    }
+
+    @Override public Set<OUT> convert(IN input) {
+        Set<MID> intermediate = first.convert(input);
+        if (intermediate.size() == 1) {
+            return second.convert(intermediate.iterator().next());
+        }
+        Set<OUT> out = new HashSet<>();
+        for (MID data : intermediate) {
+            out.addAll(second.convert(data));
+        }
+        return out;
+    }
+
+    /**
+     * Combines the configs of all steps of a chain into one, as only one config is passed to the chained converter.
+     *
+     * @return the combined config, or null if loading any of the configs failed
+     */
+    public static ConverterConfig mergeConfigs(ConverterConfig... configs) {
+        ConverterConfig merged = null;
+        for (ConverterConfig config : configs) {
+            if (config == null) {
+                return null;
+            }
+            if (merged == null) {
+                merged = new ConverterConfig(config.getDefaults());
+            } else {
+                config.getDefaults().forEach(merged::setDefault);
+            }
+            for (Map.Entry<String, Object> override : config.getOverrides().entrySet()) {
+                merged.set(override.getKey(), override.getValue());
+            }
+        }
+        return merged;
+    }
+}
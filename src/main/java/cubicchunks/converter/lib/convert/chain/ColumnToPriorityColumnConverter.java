@@ -0,0 +1,127 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.chain;
+
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.convert.ChunkDataConverter;
+import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
+import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.EditTaskIndex;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Passes cubic chunks columns to converters that work on priority columns. All cubes get the same priority, like
+ * when reading them with {@link cubicchunks.converter.lib.convert.io.PriorityCubicChunkReader}. Given edit tasks,
+ * it also filters the cubes the way that reader does: cubes in 3d regions no task touches are dropped, and air cubes
+ * missing from the source boxes of tasks that {@link EditTask#createSrcCubesIfMissing() create them} are added.
+ */
+public class ColumnToPriorityColumnConverter implements ChunkDataConverter<CubicChunksColumnData, PriorityCubicChunksColumnData> {
+
+    private final long priority;
+    // dimension directory -> index of the tasks of that dimension, only for dimensions that have tasks
+    private final Map<String, EditTaskIndex> taskIndexes = new HashMap<>();
+    // dimension directory -> source boxes of the tasks that create missing cubes
+    private final Map<String, List<BoundingBox>> createIfMissingBoxes = new HashMap<>();
+
+    public ColumnToPriorityColumnConverter() {
+        this(0L);
+    }
+
+    public ColumnToPriorityColumnConverter(long priority) {
+        this.priority = priority;
+    }
+
+    public ColumnToPriorityColumnConverter(List<EditTask> tasks) {
+        this(0L);
+        if (tasks == null) {
+            return;
+        }
+        for (Dimension dim : Dimensions.getDimensions()) {
+            EditTaskIndex taskIndex = new EditTaskIndex(tasks, dim.getDirectory());
+            if (taskIndex.hasTasks()) {
+                taskIndexes.put(dim.getDirectory(), taskIndex);
+            }
+        }
+        for (EditTask task : tasks) {
+            if (!task.createSrcCubesIfMissing()) {
+                continue;
+            }
+            for (Dimension dim : Dimensions.getDimensions()) {
+                if (task.handlesDimension(dim.getDirectory())) {
+                    createIfMissingBoxes.computeIfAbsent(dim.getDirectory(), x -> new ArrayList<>()).addAll(task.getSrcBoxes());
+                }
+            }
+        }
+    }
+
+    @Override public Set<PriorityCubicChunksColumnData> convert(CubicChunksColumnData input) {
+        Map<Integer, ImmutablePair<Long, ByteBuffer>> cubes = new HashMap<>(input.getCubeData().size() * 2);
+        EditTaskIndex taskIndex = taskIndexes.get(input.getDimension().getDirectory());
+        int regionX = input.getPosition().getEntryX() >> 4;
+        int regionZ = input.getPosition().getEntryZ() >> 4;
+        input.getCubeData().forEach((y, cube) -> {
+            if (taskIndex == null || taskIndex.touchesRegion(regionX, y >> 4, regionZ)) {
+                cubes.put(y, new ImmutablePair<>(priority, cube));
+            }
+        });
+        addMissingCubes(input, cubes);
+        if (taskIndex != null && cubes.isEmpty()) {
+            // all the cubes were filtered out, and the reader only reads columns with cubes
+            return Collections.emptySet();
+        }
+        return Collections.singleton(new PriorityCubicChunksColumnData(input.getDimension(), input.getPosition(), input.getColumnData(), cubes, true));
+    }
+
+    private void addMissingCubes(CubicChunksColumnData input, Map<Integer, ImmutablePair<Long, ByteBuffer>> cubes) {
+        List<BoundingBox> boxes = createIfMissingBoxes.get(input.getDimension().getDirectory());
+        if (boxes == null) {
+            return;
+        }
+        int x = input.getPosition().getEntryX();
+        int z = input.getPosition().getEntryZ();
+        for (BoundingBox box : boxes) {
+            if (!box.columnIntersects(x, z)) {
+                continue;
+            }
+            for (int y = box.getMinPos().getY(); y <= box.getMaxPos().getY(); y++) {
+                if (!cubes.containsKey(y)) {
+                    cubes.put(y, new ImmutablePair<>(priority, Utils.createAirCubeBuffer(new EntryLocation3D(x, y, z))));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.data;
+
+import cubicchunks.converter.lib.Dimension;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The 2x2 vanilla chunks that make up one column of big cubes.
+ */
+public class AnvilChunkGroupData {
+
+    private final Dimension dimension;
+    private final int groupX;
+    private final int groupZ;
+    private final AnvilChunkData[] chunks;
+
+    /**
+     * @param chunks the chunks, indexed by {@code (chunkZ & 1) << 1 | chunkX & 1}. Missing chunks are null.
+     */
+    public AnvilChunkGroupData(Dimension dimension, int groupX, int groupZ, AnvilChunkData[] chunks) {
+        this.dimension = dimension;
+        this.groupX = groupX;
+        this.groupZ = groupZ;
+        this.chunks = chunks;
+    }
+
+    public static int chunkIndex(int chunkX, int chunkZ) {
+        return (chunkZ & 1) << 1 | chunkX & 1;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public int getGroupX() {
+        return groupX;
+    }
+
+    public int getGroupZ() {
+        return groupZ;
+    }
+
+    public AnvilChunkData[] getChunks() {
+        return chunks;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnvilChunkGroupData that = (AnvilChunkGroupData) o;
+        return groupX == that.groupX &&
+                groupZ == that.groupZ &&
+                dimension.equals(that.dimension) &&
+                Arrays.equals(chunks, that.chunks);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(dimension, groupX, groupZ, Arrays.hashCode(chunks));
+    }
+
+    @Override public String toString() {
+        return "AnvilChunkGroupData{" +
+                "dimension='" + dimension + '\'' +
+                ", groupX=" + groupX +
+                ", groupZ=" + groupZ +
+                ", chunks=" + Arrays.toString(chunks) +
+                '}';
+    }
+}
@@ -37,6 +37,7 @@ public class DualSourceCubicChunksColumnData {
     private final EntryLocation2D position;
     private final ByteBuffer columnData;
     private final Map<Integer, ByteBuffer> priorityCubeData;
+    // only the cubes missing from the priority world, the reader doesn't load the others from the fallback world
     private final Map<Integer, ByteBuffer> fallbackCubeData;
 
     public DualSourceCubicChunksColumnData(Dimension dimension,
@@ -28,6 +28,8 @@ import cubicchunks.converter.lib.util.ImmutablePair;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Map;
 
 public class PriorityCubicChunksColumnData {
@@ -38,6 +40,9 @@ public class PriorityCubicChunksColumnData {
 
     private final boolean isCompressed;
 
+    private final Path rawSourceDir;
+    private final Path rawFile;
+
     public PriorityCubicChunksColumnData(Dimension dimension, EntryLocation2D position, ByteBuffer columnData,
                                          Map<Integer, ImmutablePair<Long, ByteBuffer>> cubeData, boolean isCompressed) {
         this.dimension = dimension;
@@ -45,6 +50,30 @@ public class PriorityCubicChunksColumnData {
         this.columnData = columnData;
         this.cubeData = cubeData;
         this.isCompressed = isCompressed;
+        this.rawSourceDir = null;
+        this.rawFile = null;
+    }
+
+    private PriorityCubicChunksColumnData(Dimension dimension, Path rawSourceDir, Path rawFile) {
+        this.dimension = dimension;
+        this.position = null;
+        this.columnData = null;
+        this.cubeData = Collections.emptyMap();
+        this.isCompressed = true;
+        this.rawSourceDir = rawSourceDir;
+        this.rawFile = rawFile;
+    }
+
+    /**
+     * Creates data representing a whole region file (or a region .ext directory) that is copied to the output unchanged,
+     * without decoding any of its entries.
+     *
+     * @param dimension the dimension
+     * @param rawSourceDir the source dimension directory
+     * @param rawFile the region file, relative to the dimension directory
+     */
+    public static PriorityCubicChunksColumnData rawRegionFile(Dimension dimension, Path rawSourceDir, Path rawFile) {
+        return new PriorityCubicChunksColumnData(dimension, rawSourceDir, rawFile);
     }
 
     public Dimension getDimension() {
@@ -66,4 +95,16 @@ public class PriorityCubicChunksColumnData {
     public boolean isCompressed() {
         return isCompressed;
     }
+
+    public boolean isRawRegionFile() {
+        return rawFile != null;
+    }
+
+    public Path getRawSourceDir() {
+        return rawSourceDir;
+    }
+
+    public Path getRawFile() {
+        return rawFile;
+    }
 }
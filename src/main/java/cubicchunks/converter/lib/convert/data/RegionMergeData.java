@@ -0,0 +1,140 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.data;
+
+import cubicchunks.converter.lib.Dimension;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One region file of a merge of several worlds: the directories of the source worlds that have the region and, once
+ * the merge is planned, which source each entry of the region is copied from.
+ */
+public class RegionMergeData {
+
+    public static final int ENTRIES_2D = 32 * 32;
+    public static final int ENTRIES_3D = 16 * 16 * 16;
+
+    private final Dimension dimension;
+    private final String regionDirectory;
+    private final String regionName;
+    private final List<Path> sources;
+    @Nullable private final int[] entrySources;
+    @Nullable private final int[] entryLocations;
+    @Nullable private final BitSet extEntries;
+
+    /**
+     * @param regionDirectory region2d or region3d
+     * @param sources region directories containing this region, lowest priority first
+     */
+    public RegionMergeData(Dimension dimension, String regionDirectory, String regionName, List<Path> sources) {
+        this(dimension, regionDirectory, regionName, sources, null, null, null);
+    }
+
+    private RegionMergeData(Dimension dimension, String regionDirectory, String regionName, List<Path> sources,
+            @Nullable int[] entrySources, @Nullable int[] entryLocations, @Nullable BitSet extEntries) {
+        this.dimension = dimension;
+        this.regionDirectory = regionDirectory;
+        this.regionName = regionName;
+        this.sources = sources;
+        this.entrySources = entrySources;
+        this.entryLocations = entryLocations;
+        this.extEntries = extEntries;
+    }
+
+    /**
+     * @param entrySources index into the sources for each entry, or -1 if no source has the entry
+     * @param entryLocations region header value of each entry in its source
+     * @param extEntries entries stored in the .ext directory of their source, rather than in the region file
+     */
+    public RegionMergeData withPlan(int[] entrySources, int[] entryLocations, BitSet extEntries) {
+        return new RegionMergeData(dimension, regionDirectory, regionName, sources, entrySources, entryLocations, extEntries);
+    }
+
+    public static int getEntryCount(String regionName) {
+        return regionName.endsWith(".2dr") ? ENTRIES_2D : ENTRIES_3D;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public String getRegionDirectory() {
+        return regionDirectory;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public List<Path> getSources() {
+        return sources;
+    }
+
+    public boolean isPlanned() {
+        return entrySources != null;
+    }
+
+    @Nullable
+    public int[] getEntrySources() {
+        return entrySources;
+    }
+
+    @Nullable
+    public int[] getEntryLocations() {
+        return entryLocations;
+    }
+
+    @Nullable
+    public BitSet getExtEntries() {
+        return extEntries;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RegionMergeData that = (RegionMergeData) o;
+        return Objects.equals(dimension, that.dimension) && regionDirectory.equals(that.regionDirectory) && regionName.equals(that.regionName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dimension, regionDirectory, regionName);
+    }
+
+    @Override
+    public String toString() {
+        return "RegionMergeData{" +
+            "dimension=" + dimension +
+            ", regionDirectory='" + regionDirectory + '\'' +
+            ", regionName='" + regionName + '\'' +
+            ", sources=" + sources +
+            '}';
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import static cubicchunks.converter.lib.util.BigCubeCoords.sectionToCube;
+
+import com.carrotsearch.hppc.LongHashSet;
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ChunkDataReader;
+import cubicchunks.converter.lib.convert.data.AnvilChunkData;
+import cubicchunks.converter.lib.convert.data.AnvilChunkGroupData;
+import cubicchunks.converter.lib.util.UncheckedInterruptedException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Reads a vanilla world as groups of 2x2 chunks, the horizontal size of a big cube. A group never spans two region
+ * files, so each region is grouped on its own as it's read.
+ */
+public class AnvilChunkGroupReader implements ChunkDataReader<AnvilChunkGroupData> {
+
+    private final AnvilChunkReader reader;
+
+    public AnvilChunkGroupReader(Path srcDir) {
+        this(srcDir, new ConverterConfig(new HashMap<>()));
+    }
+
+    /**
+     * @param config the config of the underlying {@link AnvilChunkReader}
+     */
+    public AnvilChunkGroupReader(Path srcDir, ConverterConfig config) {
+        this.reader = new AnvilChunkReader(srcDir, config);
+    }
+
+    private static long groupKey(int groupX, int groupZ) {
+        return (long) groupX << 32 | groupZ & 0xFFFFFFFFL;
+    }
+
+    @Override public void countInputChunks(Runnable increment) throws IOException {
+        Map<Dimension, LongHashSet> groups = new HashMap<>();
+        try {
+            reader.forAllChunks((dim, loc) -> {
+                if (groups.computeIfAbsent(dim, d -> new LongHashSet()).add(groupKey(sectionToCube(loc.getEntryX()), sectionToCube(loc.getEntryZ())))) {
+                    increment.run();
+                }
+            });
+        } catch (UncheckedInterruptedException ex) {
+            // return
+        }
+    }
+
+    @Override public void loadChunks(Consumer<? super AnvilChunkGroupData> consumer, Predicate<Throwable> errorHandler) throws IOException {
+        reader.loadRegions(() -> new AnvilChunkReader.RegionConsumer() {
+            // groups still missing some chunks
+            private final Map<Long, AnvilChunkGroupData> pending = new HashMap<>();
+
+            @Override public void accept(AnvilChunkData data) {
+                int x = data.getPosition().getEntryX();
+                int z = data.getPosition().getEntryZ();
+                long key = groupKey(sectionToCube(x), sectionToCube(z));
+                AnvilChunkGroupData group = pending.computeIfAbsent(key,
+                        k -> new AnvilChunkGroupData(data.getDimension(), sectionToCube(x), sectionToCube(z), new AnvilChunkData[4]));
+                AnvilChunkData[] chunks = group.getChunks();
+                chunks[AnvilChunkGroupData.chunkIndex(x, z)] = data;
+                if (chunks[0] != null && chunks[1] != null && chunks[2] != null && chunks[3] != null) {
+                    pending.remove(key);
+                    consumer.accept(group);
+                }
+            }
+
+            @Override public void regionDone() {
+                pending.values().forEach(consumer);
+                pending.clear();
+            }
+        }, errorHandler);
+    }
+
+    @Override public void stop() {
+        reader.stop();
+    }
+
+    @Override public void close() throws Exception {
+        reader.close();
+    }
+}
@@ -28,6 +28,7 @@ import static cubicchunks.regionlib.impl.save.MinecraftSaveSection.MinecraftRegi
 import static java.nio.file.Files.exists;
 
 import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.util.MemoryReadRegion;
 import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
@@ -36,24 +37,58 @@ import cubicchunks.regionlib.impl.MinecraftChunkLocation;
 import cubicchunks.regionlib.impl.header.TimestampHeaderEntryProvider;
 import cubicchunks.regionlib.impl.save.MinecraftSaveSection;
 import cubicchunks.regionlib.lib.provider.SimpleRegionProvider;
+import cubicchunks.regionlib.util.CorruptedDataException;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class AnvilChunkReader extends BaseMinecraftReader<AnvilChunkData, MinecraftSaveSection> {
 
+    // config key for the amount of threads reading region files in parallel. Defaults to the anvil.readerThreads system
+    // property, one per processor if it's not set
+    public static final String THREADS = "anvilReaderThreads";
+    private static final int DEFAULT_THREADS = Integer.getInteger("anvil.readerThreads", Runtime.getRuntime().availableProcessors());
+    private static final int SECTOR_SIZE = 4096;
+    private static final int CHUNKS_PER_REGION = 32 * 32;
+
     private final Thread loadThread;
+    private final int threads;
 
     public AnvilChunkReader(Path srcDir) {
+        this(srcDir, new ConverterConfig(new HashMap<>()));
+    }
+
+    /**
+     * @param config the config to read {@link #THREADS} from. Each region file is read by only one thread.
+     */
+    public AnvilChunkReader(Path srcDir, ConverterConfig config) {
         super(srcDir, (dim, path) -> exists(getDimensionPath(dim, path)) ? createSave(dim, path) : null);
-        loadThread = Thread.currentThread();
+        int threads = config.getInt(THREADS, DEFAULT_THREADS);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Reader thread count must be positive, but was " + threads);
+        }
+        this.loadThread = Thread.currentThread();
+        this.threads = threads;
     }
 
     private static MinecraftSaveSection createSave(Dimension dim, Path path) {
@@ -88,37 +123,198 @@ public class AnvilChunkReader extends BaseMinecraftReader<AnvilChunkData, Minecr
     }
 
     private void doCountChunks(Runnable increment) throws IOException, UncheckedInterruptedException {
-        for (MinecraftSaveSection save : saves.values()) {
-            save.forAllKeys(interruptibleConsumer(loc -> increment.run()));
+        forAllChunks((dim, loc) -> increment.run());
+    }
+
+    void forAllChunks(BiConsumer<Dimension, MinecraftChunkLocation> consumer) throws IOException, UncheckedInterruptedException {
+        for (Map.Entry<Dimension, MinecraftSaveSection> entry : saves.entrySet()) {
+            Dimension dim = entry.getKey();
+            entry.getValue().forAllKeys(interruptibleConsumer(loc -> consumer.accept(dim, loc)));
         }
     }
 
     @Override public void loadChunks(Consumer<? super AnvilChunkData> consumer, Predicate<Throwable> errorHandler) throws IOException {
         try {
-            doLoadChunks(consumer, errorHandler);
+            doLoadChunks(() -> new RegionConsumer() {
+                @Override public void accept(AnvilChunkData data) {
+                    consumer.accept(data);
+                }
+
+                @Override public void regionDone() {
+                }
+            }, errorHandler);
         } catch (UncheckedInterruptedException ex) {
             // return
         }
     }
 
-    private void doLoadChunks(Consumer<? super AnvilChunkData> consumer, Predicate<Throwable> errorHandler) throws IOException, UncheckedInterruptedException {
-        for (Map.Entry<Dimension, MinecraftSaveSection> entry : saves.entrySet()) {
-            if (Thread.interrupted()) {
+    /**
+     * Receives the chunks of one region file, on the thread reading that region.
+     */
+    interface RegionConsumer extends Consumer<AnvilChunkData> {
+        /**
+         * Called after the last chunk of the region was accepted.
+         */
+        void regionDone();
+    }
+
+    /**
+     * Like {@link #loadChunks(Consumer, Predicate)}, but with a new consumer for each region file.
+     */
+    void loadRegions(Supplier<? extends RegionConsumer> regionConsumers, Predicate<Throwable> errorHandler) throws IOException {
+        try {
+            doLoadChunks(regionConsumers, errorHandler);
+        } catch (UncheckedInterruptedException ex) {
+            // return
+        }
+    }
+
+    private void doLoadChunks(Supplier<? extends RegionConsumer> regionConsumers, Predicate<Throwable> errorHandler) throws IOException, UncheckedInterruptedException {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Anvil region reader #" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Dimension d : saves.keySet()) {
+                if (Thread.interrupted()) {
+                    return;
+                }
+                List<Future<?>> regions = new ArrayList<>();
+                for (Path regionFile : listRegionFiles(getDimensionPath(d, srcDir))) {
+                    regions.add(executor.submit(() -> {
+                        RegionConsumer consumer = regionConsumers.get();
+                        try {
+                            loadRegion(d, regionFile, consumer, errorHandler);
+                        } catch (UncheckedInterruptedException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            if (!errorHandler.test(e)) {
+                                throw new UncheckedInterruptedException();
+                            }
+                        }
+                        consumer.regionDone();
+                    }));
+                }
+                for (Future<?> region : regions) {
+                    try {
+                        region.get();
+                    } catch (InterruptedException e) {
+                        throw new UncheckedInterruptedException();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof UncheckedInterruptedException) {
+                            throw (UncheckedInterruptedException) e.getCause();
+                        }
+                        throw new RuntimeException(e.getCause());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Path> listRegionFiles(Path regionDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(regionDir, "r.*.*.mca")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Reads all chunks of one region file, in the order they are stored in the file, so that the reads are sequential.
+     * Errors with individual chunks are passed to the error handler, and only skip that chunk.
+     */
+    private void loadRegion(Dimension d, Path regionFile, Consumer<? super AnvilChunkData> consumer,
+            Predicate<Throwable> errorHandler) throws IOException {
+        String[] parts = regionFile.getFileName().toString().split("\\.");
+        int regionX, regionZ;
+        try {
+            regionX = Integer.parseInt(parts[1]);
+            regionZ = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return; // not a region file
+        }
+        try (FileChannel channel = FileChannel.open(regionFile, StandardOpenOption.READ)) {
+            if (channel.size() < SECTOR_SIZE) {
                 return;
             }
-            MinecraftSaveSection vanillaSave = entry.getValue();
-            Dimension d = entry.getKey();
-            vanillaSave.forAllKeys(interruptibleConsumer(mcPos -> {
+            ByteBuffer header = ByteBuffer.allocate(SECTOR_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+
+            // packed as offset << 32 | chunk index, so sorting orders by offset
+            long[] entries = new long[CHUNKS_PER_REGION];
+            int count = 0;
+            for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+                int entry = header.getInt();
+                int offset = entry >>> 8;
+                int sectors = entry & 0xFF;
+                if (offset != 0 && sectors != 0) {
+                    entries[count++] = (long) offset << 32 | i;
+                }
+            }
+            Arrays.sort(entries, 0, count);
+
+            ByteBuffer buffer = ByteBuffer.allocate(SECTOR_SIZE);
+            for (int n = 0; n < count; n++) {
+                if (Thread.interrupted()) {
+                    throw new UncheckedInterruptedException();
+                }
+                int index = (int) entries[n];
+                int offset = (int) (entries[n] >>> 32);
+                int sectors = header.getInt(index * Integer.BYTES) & 0xFF;
+                int maxSize = sectors * SECTOR_SIZE;
+                if (buffer.capacity() < maxSize) {
+                    buffer = ByteBuffer.allocate(maxSize);
+                }
+                MinecraftChunkLocation pos = new MinecraftChunkLocation(
+                        regionX * 32 + (index & 31), regionZ * 32 + (index >> 5), MCA.name().toLowerCase());
+                ByteBuffer data;
                 try {
-                    Optional<ByteBuffer> load = vanillaSave.load(mcPos, true);
-                    consumer.accept(new AnvilChunkData(d, mcPos, load.orElse(null)));
+                    data = readChunk(channel, buffer, offset, maxSize);
                 } catch (Exception e) {
                     e.printStackTrace();
                     if (!errorHandler.test(e)) {
                         throw new UncheckedInterruptedException();
                     }
+                    continue;
                 }
-            }));
+                consumer.accept(new AnvilChunkData(d, pos, data));
+            }
+        }
+    }
+
+    private static ByteBuffer readChunk(FileChannel channel, ByteBuffer buffer, int offset, int maxSize) throws IOException {
+        buffer.clear();
+        buffer.limit(maxSize);
+        // the last sector may be truncated at the end of the file
+        readFully(channel, buffer, (long) offset * SECTOR_SIZE);
+        buffer.flip();
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new CorruptedDataException("Chunk at sector " + offset + " points outside of the file");
+        }
+        int dataLength = buffer.getInt();
+        if (dataLength < 0 || dataLength > buffer.remaining()) {
+            throw new CorruptedDataException("Expected data size max " + buffer.remaining() + " but found " + dataLength);
+        }
+        byte[] data = new byte[dataLength];
+        buffer.get(data);
+        return ByteBuffer.wrap(data);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
         }
     }
 
@@ -28,6 +28,7 @@ import static cubicchunks.converter.lib.util.Utils.propagateExceptions;
 import static cubicchunks.regionlib.impl.save.MinecraftSaveSection.MinecraftRegionType.MCA;
 
 import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.ChunkDataWriter;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.MultilayerAnvilChunkData;
@@ -46,43 +47,114 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AnvilChunkWriter implements ChunkDataWriter<MultilayerAnvilChunkData> {
 
+    // config key for the amount of threads writing layers in parallel. Defaults to the anvil.writerThreads system
+    // property, one per processor if it's not set
+    public static final String LANES = "anvilWriterThreads";
+    private static final int DEFAULT_LANES = Integer.getInteger("anvil.writerThreads", Runtime.getRuntime().availableProcessors());
+    private static final int LANE_QUEUE_SIZE = 256;
+
     private Path dstPath;
     private Map<Integer, Map<Dimension, MinecraftSaveSection>> saves = new ConcurrentHashMap<>();
+    // each layer is always written by the same lane, so writes to one layer's regions never contend
+    private final ExecutorService[] lanes;
+    // lane failures not yet reported. Failures while one is pending are added to it as suppressed
+    private final AtomicReference<Throwable> laneError = new AtomicReference<>();
 
     public AnvilChunkWriter(Path dstPath) {
+        this(dstPath, new ConverterConfig(new HashMap<>()));
+    }
+
+    public AnvilChunkWriter(Path dstPath, ConverterConfig config) {
         this.dstPath = dstPath;
+        this.lanes = new ExecutorService[Math.max(1, config.getInt(LANES, DEFAULT_LANES))];
+        RejectedExecutionHandler blockingHandler = (r, executor) -> {
+            try {
+                if (!executor.isShutdown()) {
+                    executor.getQueue().put(r);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Executor was interrupted while the task was waiting to put on work queue", e);
+            }
+        };
+        for (int i = 0; i < lanes.length; i++) {
+            int laneId = i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(LANE_QUEUE_SIZE), r -> {
+                Thread thread = new Thread(r, "Anvil layer writer #" + laneId);
+                thread.setDaemon(true);
+                return thread;
+            }, blockingHandler);
+        }
     }
 
     @Override public void accept(MultilayerAnvilChunkData data) throws IOException {
+        rethrowLaneError();
         for (Map.Entry<Integer, AnvilChunkData> entry : data.getWorlds().entrySet()) {
             int layerY = entry.getKey();
             AnvilChunkData chunk = entry.getValue();
-            Map<Dimension, MinecraftSaveSection> layer = saves.computeIfAbsent(layerY, i -> new HashMap<>());
-            MinecraftSaveSection save = layer.computeIfAbsent(chunk.getDimension(), propagateExceptions(dim -> {
-                Path regionDir = getDimensionPath(entry.getValue().getDimension(), dstPath.resolve(dirName(layerY)));
-                Utils.createDirectories(regionDir);
-                return new MinecraftSaveSection(new RWLockingCachedRegionProvider<>(
-                        new SimpleRegionProvider<>(new MinecraftChunkLocation.Provider(MCA.name().toLowerCase()), regionDir, (keyProvider, regionKey) ->
-                                MemoryWriteRegion.<MinecraftChunkLocation>builder()
-                                        .setDirectory(regionDir)
-                                        .setSectorSize(4096)
-                                        .setKeyProvider(keyProvider)
-                                        .setRegionKey(regionKey)
-                                        .addHeaderEntry(new TimestampHeaderEntryProvider<>(TimeUnit.SECONDS))
-                                        .build(),
-                                (file, key) -> Files.exists(file)
-                        )
-                ));
-            }));
-            save.save(chunk.getPosition(), chunk.getData());
+            lanes[Math.floorMod(layerY, lanes.length)].execute(() -> {
+                try {
+                    write(layerY, chunk);
+                } catch (Throwable t) {
+                    laneError.accumulateAndGet(t, (pending, failure) -> {
+                        if (pending == null) {
+                            return failure;
+                        }
+                        pending.addSuppressed(failure);
+                        return pending;
+                    });
+                }
+            });
         }
     }
 
+    private void write(int layerY, AnvilChunkData chunk) throws IOException {
+        Map<Dimension, MinecraftSaveSection> layer = saves.computeIfAbsent(layerY, i -> new ConcurrentHashMap<>());
+        MinecraftSaveSection save = layer.computeIfAbsent(chunk.getDimension(), propagateExceptions(dim -> {
+            Path regionDir = getDimensionPath(dim, dstPath.resolve(dirName(layerY)));
+            Utils.createDirectories(regionDir);
+            return new MinecraftSaveSection(new RWLockingCachedRegionProvider<>(
+                    new SimpleRegionProvider<>(new MinecraftChunkLocation.Provider(MCA.name().toLowerCase()), regionDir, (keyProvider, regionKey) ->
+                            MemoryWriteRegion.<MinecraftChunkLocation>builder()
+                                    .setDirectory(regionDir)
+                                    .setSectorSize(4096)
+                                    .setKeyProvider(keyProvider)
+                                    .setRegionKey(regionKey)
+                                    .addHeaderEntry(new TimestampHeaderEntryProvider<>(TimeUnit.SECONDS))
+                                    .build(),
+                            (file, key) -> Files.exists(file)
+                    )
+            ));
+        }));
+        save.save(chunk.getPosition(), chunk.getData());
+    }
+
+    /**
+     * Throws the lane failures since the last call, so that each one is reported once. Chunks after an ignored failure
+     * are written normally.
+     */
+    private void rethrowLaneError() throws IOException {
+        Throwable t = laneError.getAndSet(null);
+        if (t == null) {
+            return;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        throw new IOException("Writing anvil layer failed", t);
+    }
+
     static Path getDimensionPath(Dimension d, Path worldDir) {
         if (!d.getDirectory().isEmpty()) {
             worldDir = worldDir.resolve(d.getDirectory());
@@ -100,7 +172,18 @@ public class AnvilChunkWriter implements ChunkDataWriter<MultilayerAnvilChunkDat
     }
 
     @Override public void close() throws Exception {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
         boolean exception = false;
+        Throwable pending = laneError.getAndSet(null);
+        if (pending != null) {
+            pending.printStackTrace();
+            exception = true;
+        }
         for (Map<?, ? extends Closeable> saves : this.saves.values()) {
             for (Closeable save : saves.values()) {
                 try {
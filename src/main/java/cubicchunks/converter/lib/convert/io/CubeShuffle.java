@@ -0,0 +1,229 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.converter.lib.util.Vector3i;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects cubes on disk, partitioned by dimension and destination 3d region, and hands them back one region at a time
+ * with only the highest priority version of each cube.
+ * <p>
+ * Cubes are buffered in memory per region. When the buffers get too big, they are all appended to their region's run
+ * file. Merging reads each run file twice: first only the record headers, to pick the winning record for each of the
+ * 4096 cubes of the region, then the winning records in region entry order. On equal priority the cube added first wins,
+ * like in {@link PriorityCubicChunkWriter}.
+ */
+class CubeShuffle implements AutoCloseable {
+
+    private static final int REGION_BITS = 4;
+    private static final int REGION_MASK = (1 << REGION_BITS) - 1;
+    private static final int CUBES_PER_REGION = 1 << (REGION_BITS * 3);
+    // x, y, z, priority and data length
+    private static final int RECORD_HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Path dir;
+    private final long maxBufferedBytes;
+    private final Map<Dimension, Map<Vector3i, Partition>> partitions = new HashMap<>();
+    private final Map<Dimension, Path> dimensionDirs = new HashMap<>();
+    private long bufferedBytes;
+
+    CubeShuffle(Path dir, long maxBufferedBytes) {
+        this.dir = dir;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    synchronized void add(Dimension dim, int cubeX, int cubeY, int cubeZ, long priority, ByteBuffer cube) throws IOException {
+        Map<Vector3i, Partition> dimPartitions = partitions.computeIfAbsent(dim, d -> new HashMap<>());
+        Vector3i region = new Vector3i(cubeX >> REGION_BITS, cubeY >> REGION_BITS, cubeZ >> REGION_BITS);
+        Partition partition = dimPartitions.get(region);
+        if (partition == null) {
+            Path dimDir = dimensionDirs.computeIfAbsent(dim, d -> dir.resolve("dim" + dimensionDirs.size()));
+            partition = new Partition(dimDir.resolve(region.getX() + "." + region.getY() + "." + region.getZ() + ".run"));
+            dimPartitions.put(region, partition);
+        }
+        int start = partition.buffer.size();
+        partition.write(cubeX, cubeY, cubeZ, priority, cube);
+        bufferedBytes += partition.buffer.size() - start;
+        if (bufferedBytes > maxBufferedBytes) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        for (Map<Vector3i, Partition> dimPartitions : partitions.values()) {
+            for (Partition partition : dimPartitions.values()) {
+                partition.spill();
+            }
+        }
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Gives the winning version of every cube to the consumer, one region after another.
+     */
+    synchronized void merge(CubeConsumer consumer) throws IOException {
+        spill();
+        for (Map.Entry<Dimension, Map<Vector3i, Partition>> dimEntry : partitions.entrySet()) {
+            for (Partition partition : dimEntry.getValue().values()) {
+                partition.merge(dimEntry.getKey(), consumer);
+            }
+        }
+    }
+
+    @Override public synchronized void close() throws IOException {
+        partitions.clear();
+        dimensionDirs.clear();
+        if (Files.exists(dir)) {
+            Utils.rm(dir);
+        }
+    }
+
+    interface CubeConsumer {
+        void accept(Dimension dim, EntryLocation3D location, ByteBuffer cube) throws IOException;
+    }
+
+    private static class Partition {
+        private final Path file;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private DataOutputStream out = new DataOutputStream(buffer);
+
+        Partition(Path file) {
+            this.file = file;
+        }
+
+        void write(int cubeX, int cubeY, int cubeZ, long priority, ByteBuffer cube) throws IOException {
+            ByteBuffer data = cube.duplicate();
+            out.writeInt(cubeX);
+            out.writeInt(cubeY);
+            out.writeInt(cubeZ);
+            out.writeLong(priority);
+            out.writeInt(data.remaining());
+            if (data.hasArray()) {
+                out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            } else {
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                out.write(bytes);
+            }
+        }
+
+        void spill() throws IOException {
+            if (buffer.size() == 0) {
+                return;
+            }
+            Utils.createDirectories(file.getParent());
+            try (OutputStream os = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                buffer.writeTo(os);
+            }
+            // a new buffer instead of reset(), so that the memory of the grown array is released
+            buffer = new ByteArrayOutputStream();
+            out = new DataOutputStream(buffer);
+        }
+
+        void merge(Dimension dim, CubeConsumer consumer) throws IOException {
+            if (!Files.exists(file)) {
+                return;
+            }
+            long[] offsets = new long[CUBES_PER_REGION];
+            long[] priorities = new long[CUBES_PER_REGION];
+            int[] lengths = new int[CUBES_PER_REGION];
+            int[] xs = new int[CUBES_PER_REGION], ys = new int[CUBES_PER_REGION], zs = new int[CUBES_PER_REGION];
+            Arrays.fill(offsets, -1);
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                long offset = 0;
+                while (true) {
+                    int x, y, z;
+                    try {
+                        x = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    y = in.readInt();
+                    z = in.readInt();
+                    long priority = in.readLong();
+                    int length = in.readInt();
+                    int id = (x & REGION_MASK) << (REGION_BITS * 2) | (y & REGION_MASK) << REGION_BITS | z & REGION_MASK;
+                    if (offsets[id] < 0 || priority > priorities[id]) {
+                        offsets[id] = offset + RECORD_HEADER_SIZE;
+                        priorities[id] = priority;
+                        lengths[id] = length;
+                        xs[id] = x;
+                        ys[id] = y;
+                        zs[id] = z;
+                    }
+                    skipFully(in, length);
+                    offset += RECORD_HEADER_SIZE + length;
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int id = 0; id < CUBES_PER_REGION; id++) {
+                    if (offsets[id] < 0) {
+                        continue;
+                    }
+                    ByteBuffer cube = ByteBuffer.allocate(lengths[id]);
+                    while (cube.hasRemaining()) {
+                        if (channel.read(cube, offsets[id] + cube.position()) < 0) {
+                            throw new EOFException("Truncated shuffle run file " + file);
+                        }
+                    }
+                    cube.flip();
+                    consumer.accept(dim, new EntryLocation3D(xs[id], ys[id], zs[id]), cube);
+                }
+            }
+            Files.delete(file);
+        }
+
+        private static void skipFully(DataInputStream in, int length) throws IOException {
+            int remaining = length;
+            while (remaining > 0) {
+                int skipped = in.skipBytes(remaining);
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                remaining -= skipped;
+            }
+        }
+    }
+}
@@ -32,12 +32,14 @@ import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.IOExecutors;
 import cubicchunks.converter.lib.util.MemoryReadRegion;
 import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
 import cubicchunks.converter.lib.util.UncheckedInterruptedException;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.converter.lib.util.Vector3i;
 import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.EditTaskIndex;
 import cubicchunks.regionlib.api.region.IRegionProvider;
 import cubicchunks.regionlib.api.region.key.RegionKey;
 import cubicchunks.regionlib.impl.EntryLocation2D;
@@ -60,11 +62,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -75,33 +77,41 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
 
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
-    private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d = new WeakHashMap<>();
-    private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d = new WeakHashMap<>();
+    private final IOExecutors io;
+    // region providers of each save, to list the regions to read
+    private final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d;
+    private final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d;
 
-    private final Map<String, List<BoundingBox>> regionBoundingBoxes = new HashMap<>();
+    private final Map<String, EditTaskIndex> taskIndexes = new HashMap<>();
     private final Map<String, List<BoundingBox>> createIfMissingBoxes = new HashMap<>();
 
     public CubicChunkReader(Path srcDir, ConverterConfig config) {
-        super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
+        this(srcDir, config, new IdentityHashMap<>(), new IdentityHashMap<>());
+    }
+
+    private CubicChunkReader(Path srcDir, ConverterConfig config,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d) {
+        super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path), providers2d, providers3d) : null);
+        this.providers2d = providers2d;
+        this.providers3d = providers3d;
         loadThread = Thread.currentThread();
+        io = IOExecutors.fromConfig(config);
         if(config.hasValue("relocations")) {
             @SuppressWarnings("unchecked") List<EditTask> tasks = (List<EditTask>) config.getValue("relocations");
 
-            for (EditTask task : tasks) {
-                // TODO: handle dimensions better
-                for (Dimension dimension : Dimensions.getDimensions()) {
-                    String dim = dimension.getDirectory();
-                    if (!task.handlesDimension(dim)) {
-                        continue;
-                    }
-                    regionBoundingBoxes.computeIfAbsent(dim, x -> new ArrayList<>());
-                    createIfMissingBoxes.computeIfAbsent(dim, x -> new ArrayList<>());
-
-                    List<BoundingBox> srcBoxes = task.getSrcBoxes();
-                    srcBoxes.forEach(box -> regionBoundingBoxes.get(dim).add(box.asRegionCoords(new Vector3i(16, 16, 16))));
-                    task.getDstBoxes().forEach(box -> regionBoundingBoxes.get(dim).add(box.asRegionCoords(new Vector3i(16, 16, 16))));
-                    if(task.createSrcCubesIfMissing()) {
-                        this.createIfMissingBoxes.get(dim).addAll(srcBoxes);
+            // TODO: handle dimensions better
+            for (Dimension dimension : Dimensions.getDimensions()) {
+                String dim = dimension.getDirectory();
+                EditTaskIndex taskIndex = new EditTaskIndex(tasks, dim);
+                if (!taskIndex.hasTasks()) {
+                    continue;
+                }
+                taskIndexes.put(dim, taskIndex);
+                List<BoundingBox> createIfMissing = createIfMissingBoxes.computeIfAbsent(dim, x -> new ArrayList<>());
+                for (EditTask task : tasks) {
+                    if (task.handlesDimension(dim) && task.createSrcCubesIfMissing()) {
+                        createIfMissing.addAll(task.getSrcBoxes());
                     }
                 }
             }
@@ -153,7 +163,7 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
                 }
             });
 
-            List<BoundingBox> regionBoundingBoxList = regionBoundingBoxes.get(dim.getDirectory());
+            EditTaskIndex taskIndex = taskIndexes.get(dim.getDirectory());
 
             for (int i = 0; i < regionProviders.size(); i++) {
                 IRegionProvider<EntryLocation3D> p = regionProviders.get(i);
@@ -161,17 +171,8 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
 
                     p.forAllRegions((key, reg) -> {
                         Vector3i regionPos = toRegionPos(key);
-                        boolean filtered = true;
+                        boolean filtered = taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ());
                         try {
-                            if(regionBoundingBoxList != null) {
-                                for (BoundingBox regionBox: regionBoundingBoxList) {
-                                    if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                        filtered = false;
-                                    }
-                                }
-                            } else {
-                                filtered = false;
-                            }
                             if(!filtered) {
                                 reg.forEachKey(cons);
                                 reg.close();
@@ -184,17 +185,7 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
                     int max = i;
                     p.forAllRegions((regionKey, reg) -> {
                         Vector3i regionPos = toRegionPos(regionKey);
-                        boolean filtered = true;
-
-                        if(regionBoundingBoxList != null) {
-                            for (BoundingBox regionBox: regionBoundingBoxList) {
-                                if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                    filtered = false;
-                                }
-                            }
-                        } else {
-                            filtered = false;
-                        }
+                        boolean filtered = taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ());
                         if(filtered) {
                             return;
                         }
@@ -244,7 +235,7 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
             }
             Dimension dim = dimEntry.getKey();
             SaveCubeColumns save = saves.get(dim);
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            io.forEachBlocking(dimEntry.getValue(), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
@@ -288,7 +279,9 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
         loadThread.interrupt();
     }
 
-    private static SaveCubeColumns createSave(Path path) {
+    private static SaveCubeColumns createSave(Path path,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d) {
         try {
             Utils.createDirectories(path);
 
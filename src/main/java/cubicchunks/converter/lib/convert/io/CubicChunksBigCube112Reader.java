@@ -26,8 +26,10 @@ package cubicchunks.converter.lib.convert.io;
 import static cubicchunks.converter.lib.util.Utils.interruptibleConsumer;
 
 import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.data.CubicChunksBigCube112Data;
 import cubicchunks.converter.lib.util.BigCubeCoords;
+import cubicchunks.converter.lib.util.IOExecutors;
 import cubicchunks.converter.lib.util.MemoryReadRegion;
 import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
 import cubicchunks.converter.lib.util.UncheckedInterruptedException;
@@ -63,11 +65,13 @@ public class CubicChunksBigCube112Reader extends BaseMinecraftReader<CubicChunks
 
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
+    private final IOExecutors io;
 
 
-    public CubicChunksBigCube112Reader(Path srcDir) {
+    public CubicChunksBigCube112Reader(Path srcDir, ConverterConfig config) {
         super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
         loadThread = Thread.currentThread();
+        io = IOExecutors.fromConfig(config);
     }
 
     @Override public void countInputChunks(Runnable increment) throws IOException, InterruptedException {
@@ -127,7 +131,7 @@ public class CubicChunksBigCube112Reader extends BaseMinecraftReader<CubicChunks
             }
             Dimension dim = dimEntry.getKey();
             SaveCubeColumns save = saves.get(dim);
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            io.forEachBlocking(dimEntry.getValue(), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
@@ -28,11 +28,13 @@ import static cubicchunks.converter.lib.util.Utils.interruptibleConsumer;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.data.DualSourceCubicChunksColumnData;
 import cubicchunks.converter.lib.convert.impl.DualSourceSaveCubeColumns;
 import cubicchunks.converter.lib.util.*;
 import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.EditTaskIndex;
 import cubicchunks.regionlib.api.region.IRegionProvider;
 import cubicchunks.regionlib.api.region.key.RegionKey;
 import cubicchunks.regionlib.impl.EntryLocation2D;
@@ -54,10 +56,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -68,28 +70,36 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
 
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
-    private static final Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation2D>>, List<IRegionProvider<EntryLocation2D>>>> providers2d = new WeakHashMap<>();
-    private static final Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation3D>>, List<IRegionProvider<EntryLocation3D>>>> providers3d = new WeakHashMap<>();
+    private final IOExecutors io;
+    // region providers of each save, to list the regions to read
+    private final Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation2D>>, List<IRegionProvider<EntryLocation2D>>>> providers2d;
+    private final Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation3D>>, List<IRegionProvider<EntryLocation3D>>>> providers3d;
 
-    private final List<BoundingBox> regionBoundingBoxes;
+    private final Map<String, EditTaskIndex> taskIndexes = new HashMap<>();
 
 
     public DualSourceCubicChunkReader(Path prioritySrcDir, Path fallbackSrcDir, ConverterConfig config) {
+        this(prioritySrcDir, fallbackSrcDir, config, new IdentityHashMap<>(), new IdentityHashMap<>());
+    }
+
+    private DualSourceCubicChunkReader(Path prioritySrcDir, Path fallbackSrcDir, ConverterConfig config,
+            Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation2D>>, List<IRegionProvider<EntryLocation2D>>>> providers2d,
+            Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation3D>>, List<IRegionProvider<EntryLocation3D>>>> providers3d) {
         super(fallbackSrcDir, (dim, path) -> (Files.exists(getDimensionPath(dim, prioritySrcDir)) || Files.exists(getDimensionPath(dim, fallbackSrcDir)))
-            ? createDualSave(getDimensionPath(dim, prioritySrcDir), getDimensionPath(dim, fallbackSrcDir))
+            ? createDualSave(getDimensionPath(dim, prioritySrcDir), getDimensionPath(dim, fallbackSrcDir), providers2d, providers3d)
             : null
         );
+        this.providers2d = providers2d;
+        this.providers3d = providers3d;
 
         loadThread = Thread.currentThread();
+        io = IOExecutors.fromConfig(config);
         if (config.hasValue("relocations")) {
-            this.regionBoundingBoxes = new ArrayList<>();
             @SuppressWarnings("unchecked") List<EditTask> tasks = (List<EditTask>) config.getValue("relocations");
-            for (EditTask task : tasks) {
-                task.getSrcBoxes().forEach(box -> regionBoundingBoxes.add(box.asRegionCoords(new Vector3i(16, 16, 16))));
-                task.getDstBoxes().forEach(box -> regionBoundingBoxes.add(box.asRegionCoords(new Vector3i(16, 16, 16))));
+            for (Dimension dim : Dimensions.getDimensions()) {
+                taskIndexes.put(dim.getDirectory(), new EditTaskIndex(tasks, dim.getDirectory()));
             }
-        } else
-            regionBoundingBoxes = null;
+        }
     }
 
     private static Path getDimensionPath(Dimension d, Path worldDir) {
@@ -118,6 +128,7 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
             Map<EntryLocation2D, IntArrayList> chunksMap = new ConcurrentHashMap<>();
 
             HashMap.SimpleEntry<List<IRegionProvider<EntryLocation3D>>, List<IRegionProvider<EntryLocation3D>>> regionProviders = providers3d.get(save);
+            EditTaskIndex taskIndex = taskIndexes.get(dim.getDirectory());
 
             CheckedConsumer<EntryLocation3D, IOException> cons = interruptibleConsumer(loc -> {
                 EntryLocation2D loc2d = new EntryLocation2D(loc.getEntryX(), loc.getEntryZ());
@@ -135,17 +146,8 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
 
                     p.forAllRegions((key, reg) -> {
                         Vector3i regionPos = toRegionPos(key);
-                        boolean filtered = true;
+                        boolean filtered = taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ());
                         try {
-                            if (regionBoundingBoxes != null) {
-                                for (BoundingBox regionBox : regionBoundingBoxes) {
-                                    if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                        filtered = false;
-                                    }
-                                }
-                            } else {
-                                filtered = false;
-                            }
                             if (!filtered) {
                                 reg.forEachKey(cons);
                                 reg.close();
@@ -158,17 +160,7 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
                     int max = i;
                     p.forAllRegions((regionKey, reg) -> {
                         Vector3i regionPos = toRegionPos(regionKey);
-                        boolean filtered = true;
-
-                        if (regionBoundingBoxes != null) {
-                            for (BoundingBox regionBox : regionBoundingBoxes) {
-                                if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                    filtered = false;
-                                }
-                            }
-                        } else {
-                            filtered = false;
-                        }
+                        boolean filtered = taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ());
                         if (filtered) {
                             return;
                         }
@@ -196,17 +188,8 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
 
                     p.forAllRegions((key, reg) -> {
                         Vector3i regionPos = toRegionPos(key);
-                        boolean filtered = true;
+                        boolean filtered = taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ());
                         try {
-                            if (regionBoundingBoxes != null) {
-                                for (BoundingBox regionBox : regionBoundingBoxes) {
-                                    if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                        filtered = false;
-                                    }
-                                }
-                            } else {
-                                filtered = false;
-                            }
                             if (!filtered) {
                                 reg.forEachKey(cons);
                                 reg.close();
@@ -219,17 +202,7 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
                     int max = i;
                     p.forAllRegions((regionKey, reg) -> {
                         Vector3i regionPos = toRegionPos(regionKey);
-                        boolean filtered = true;
-
-                        if (regionBoundingBoxes != null) {
-                            for (BoundingBox regionBox : regionBoundingBoxes) {
-                                if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                    filtered = false;
-                                }
-                            }
-                        } else {
-                            filtered = false;
-                        }
+                        boolean filtered = taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ());
                         if (filtered) {
                             return;
                         }
@@ -277,14 +250,16 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
             DualSourceSaveCubeColumns save = saves.get(dim);
             SaveCubeColumns prioritySave = save.getPrioritySave();
             SaveCubeColumns fallbackSave = save.getFallbackSave();
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            io.forEachBlocking(dimEntry.getValue(), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
                 try {
                     EntryLocation2D pos2d = chunksEntry.getKey();
                     IntArrayList yCoords = chunksEntry.getValue();
-                    ByteBuffer column = prioritySave.load(pos2d, true).orElse(fallbackSave.load(pos2d, true).orElse(null));
+                    // the fallback world is only read for entries the priority world doesn't have
+                    Optional<ByteBuffer> priorityColumn = prioritySave.load(pos2d, true);
+                    ByteBuffer column = priorityColumn.isPresent() ? priorityColumn.get() : fallbackSave.load(pos2d, true).orElse(null);
                     Map<Integer, ByteBuffer> priorityCubes = new HashMap<>();
                     Map<Integer, ByteBuffer> fallbackCubes = new HashMap<>();
 
@@ -293,13 +268,16 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
                             return;
                         }
                         int y = yCursor.value;
-                        ByteBuffer priorityCube = prioritySave.load(new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElse(null);
-                        ByteBuffer fallbackCube = fallbackSave.load(new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElse(null);
-
-                        if(priorityCube == null && fallbackCube == null)
+                        EntryLocation3D pos3d = new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ());
+                        ByteBuffer priorityCube = prioritySave.load(pos3d, true).orElse(null);
+                        if (priorityCube != null) {
+                            priorityCubes.put(y, priorityCube);
+                            continue;
+                        }
+                        ByteBuffer fallbackCube = fallbackSave.load(pos3d, true).orElse(null);
+                        if (fallbackCube == null)
                             throw new IllegalStateException("Expected cube at " + pos2d + " at y=" + y + " in dimension " + dim);
 
-                        priorityCubes.put(y, priorityCube);
                         fallbackCubes.put(y, fallbackCube);
                     }
                     DualSourceCubicChunksColumnData data = new DualSourceCubicChunksColumnData(dim, pos2d, column, priorityCubes, fallbackCubes);
@@ -316,7 +294,9 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
         loadThread.interrupt();
     }
 
-    private static DualSourceSaveCubeColumns createDualSave(Path priorityPath, Path fallbackPath) {
+    private static DualSourceSaveCubeColumns createDualSave(Path priorityPath, Path fallbackPath,
+            Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation2D>>, List<IRegionProvider<EntryLocation2D>>>> providers2d,
+            Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation3D>>, List<IRegionProvider<EntryLocation3D>>>> providers3d) {
 //        return new DualSourceSaveCubeColumns(createSave(priorityPath), createSave(fallbackPath));
 
         SaveCubeColumns fallbackSaveCubeColumns = null;
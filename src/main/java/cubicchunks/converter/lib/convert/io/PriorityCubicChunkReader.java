@@ -31,6 +31,8 @@ import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
 import cubicchunks.converter.lib.util.*;
 import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.EditTaskIndex;
+import cubicchunks.converter.lib.util.edittask.EditTaskPlanner;
 import cubicchunks.regionlib.api.region.IRegionProvider;
 import cubicchunks.regionlib.api.region.key.RegionKey;
 import cubicchunks.regionlib.impl.EntryLocation2D;
@@ -45,8 +47,10 @@ import cubicchunks.regionlib.util.CheckedConsumer;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -60,32 +64,41 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
 
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
-    private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d = new WeakHashMap<>();
-    private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d = new WeakHashMap<>();
+    private final IOExecutors io;
+    // region providers of each save, to list the regions to read
+    private final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d;
+    private final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d;
 
-    private final Map<String, List<BoundingBox>> regionBoundingBoxes = new HashMap<>();
+    private final List<EditTask> tasks;
+    private final Map<String, EditTaskIndex> taskIndexes = new HashMap<>();
     private final Map<String, List<BoundingBox>> createIfMissingBoxes = new HashMap<>();
 
     public PriorityCubicChunkReader(Path srcDir, ConverterConfig config) {
-        super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
-        loadThread = Thread.currentThread();
-        if(config.hasValue("relocations")) {
-            @SuppressWarnings("unchecked") List<EditTask> tasks = (List<EditTask>) config.getValue("relocations");
+        this(srcDir, config, new IdentityHashMap<>(), new IdentityHashMap<>());
+    }
 
-            for (EditTask task : tasks) {
-                // TODO: handle dimensions better
-                for (Dimension dim : Dimensions.getDimensions()) {
-                    if(!task.handlesDimension(dim.getDirectory())) {
-                        continue;
-                    }
-                    regionBoundingBoxes.computeIfAbsent(dim.getDirectory(), x -> new ArrayList<>());
-                    createIfMissingBoxes.computeIfAbsent(dim.getDirectory(), x -> new ArrayList<>());
-
-                    List<BoundingBox> srcBoxes = task.getSrcBoxes();
-                    srcBoxes.forEach(box -> regionBoundingBoxes.get(dim.getDirectory()).add(box.asRegionCoords(new Vector3i(16, 16, 16))));
-                    task.getDstBoxes().forEach(box -> regionBoundingBoxes.get(dim.getDirectory()).add(box.asRegionCoords(new Vector3i(16, 16, 16))));
-                    if(task.createSrcCubesIfMissing()) {
-                        this.createIfMissingBoxes.get(dim.getDirectory()).addAll(srcBoxes);
+    private PriorityCubicChunkReader(Path srcDir, ConverterConfig config,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d) {
+        super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path), providers2d, providers3d) : null);
+        this.providers2d = providers2d;
+        this.providers3d = providers3d;
+        loadThread = Thread.currentThread();
+        io = IOExecutors.fromConfig(config);
+        @SuppressWarnings("unchecked") List<EditTask> tasks = config.hasValue("relocations") ? (List<EditTask>) config.getValue("relocations") : null;
+        this.tasks = tasks;
+        if(tasks != null) {
+            // TODO: handle dimensions better
+            for (Dimension dim : Dimensions.getDimensions()) {
+                EditTaskIndex taskIndex = new EditTaskIndex(tasks, dim.getDirectory());
+                if (!taskIndex.hasTasks()) {
+                    continue;
+                }
+                taskIndexes.put(dim.getDirectory(), taskIndex);
+                List<BoundingBox> createIfMissing = createIfMissingBoxes.computeIfAbsent(dim.getDirectory(), x -> new ArrayList<>());
+                for (EditTask task : tasks) {
+                    if (task.handlesDimension(dim.getDirectory()) && task.createSrcCubesIfMissing()) {
+                        createIfMissing.addAll(task.getSrcBoxes());
                     }
                 }
             }
@@ -101,14 +114,21 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
 
     @Override public void countInputChunks(Runnable increment) throws IOException {
         try {
-            Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> dimensions = doCountChunks(increment);
-            chunkList.complete(new ChunkList(dimensions));
+            for (Dimension dim : saves.keySet()) {
+                if (taskIndexes.containsKey(dim.getDirectory())) {
+                    EditTaskPlanner.logCostEstimate(tasks, getDimensionPath(dim, srcDir), dim.getDirectory());
+                }
+            }
+            Map<Dimension, List<Path>> rawFiles = new HashMap<>();
+            Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> dimensions = doCountChunks(increment, rawFiles);
+            chunkList.complete(new ChunkList(dimensions, rawFiles));
         } catch (UncheckedInterruptedException ex) {
             chunkList.complete(null);
         }
     }
 
-    private Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> doCountChunks(Runnable increment) throws IOException, UncheckedInterruptedException {
+    private Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> doCountChunks(Runnable increment, Map<Dimension, List<Path>> rawFiles)
+            throws IOException, UncheckedInterruptedException {
         Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> dimensions = new HashMap<>();
         for (Map.Entry<Dimension, SaveCubeColumns> entry : saves.entrySet()) {
             SaveCubeColumns save = entry.getValue();
@@ -142,7 +162,11 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
                 }
             });
 
-            List<BoundingBox> regionBoundingBoxList = regionBoundingBoxes.get(dim.getDirectory());
+            EditTaskIndex taskIndex = taskIndexes.get(dim.getDirectory());
+            List<Path> dimRawFiles = new ArrayList<>();
+            Set<String> rawRegions = findRawRegions(dim, taskIndex, dimRawFiles);
+            rawFiles.put(dim, dimRawFiles);
+            dimRawFiles.forEach(f -> increment.run());
 
             for (int i = 0; i < regionProviders.size(); i++) {
                 IRegionProvider<EntryLocation3D> p = regionProviders.get(i);
@@ -150,17 +174,9 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
 
                     p.forAllRegions((key, reg) -> {
                         Vector3i regionPos = toRegionPos(key);
-                        boolean filtered = true;
+                        boolean filtered = rawRegions.contains(key.getName())
+                                || (taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ()));
                         try {
-                            if(regionBoundingBoxList != null) {
-                                for (BoundingBox regionBox: regionBoundingBoxList) {
-                                    if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                        filtered = false;
-                                    }
-                                }
-                            } else {
-                                filtered = false;
-                            }
                             if(!filtered) {
                                 reg.forEachKey(addFromDisk);
                                 reg.close();
@@ -173,17 +189,8 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
                     int max = i;
                     p.forAllRegions((regionKey, reg) -> {
                         Vector3i regionPos = toRegionPos(regionKey);
-                        boolean filtered = true;
-
-                        if(regionBoundingBoxList != null) {
-                            for (BoundingBox regionBox: regionBoundingBoxList) {
-                                if (regionBox.intersects(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
-                                    filtered = false;
-                                }
-                            }
-                        } else {
-                            filtered = false;
-                        }
+                        boolean filtered = rawRegions.contains(regionKey.getName())
+                                || (taskIndex != null && !taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ()));
                         if(filtered) {
                             return;
                         }
@@ -213,6 +220,82 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
         return dimensions;
     }
 
+    /**
+     * Finds the regions of a dimension that are copied to the output as whole files instead of being decoded. A 3d region
+     * qualifies when no task can change its contents: either the dimension has no tasks, or only tasks that don't read
+     * cube data (keep) touch it. Regions are copied together with the 2d region above them, so a 2d region and all of its
+     * 3d regions are either all copied, or all go through the converter. 3d regions that would be dropped anyway don't
+     * prevent copying.
+     *
+     * @param rawFiles receives the region files and .ext directories to copy, relative to the dimension directory
+     * @return names of the 3d regions that are copied and must not be read
+     */
+    private Set<String> findRawRegions(Dimension dim, EditTaskIndex taskIndex, List<Path> rawFiles) throws IOException {
+        Path dimDir = getDimensionPath(dim, srcDir);
+        Path part3d = dimDir.resolve("region3d");
+        if (!Files.isDirectory(part3d)) {
+            return Collections.emptySet();
+        }
+        Map<Vector2i, Set<String>> rawByRegion2d = new HashMap<>();
+        Set<Vector2i> modifiedRegions2d = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(part3d)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".ext")) {
+                    name = name.substring(0, name.length() - ".ext".length());
+                }
+                Vector3i regionPos = parseRegion3d(name);
+                if (regionPos == null) {
+                    continue;
+                }
+                Vector2i region2d = new Vector2i(regionPos.getX() >> 1, regionPos.getZ() >> 1);
+                if (taskIndex != null) {
+                    if (!taskIndex.touchesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
+                        continue;
+                    }
+                    if (taskIndex.modifiesRegion(regionPos.getX(), regionPos.getY(), regionPos.getZ())) {
+                        modifiedRegions2d.add(region2d);
+                        continue;
+                    }
+                }
+                rawByRegion2d.computeIfAbsent(region2d, r -> new HashSet<>()).add(name);
+            }
+        }
+        Set<String> rawRegions = new HashSet<>();
+        for (Map.Entry<Vector2i, Set<String>> entry : rawByRegion2d.entrySet()) {
+            if (modifiedRegions2d.contains(entry.getKey())) {
+                continue;
+            }
+            for (String name : entry.getValue()) {
+                rawRegions.add(name);
+                addIfExists(dimDir, Paths.get("region3d", name), rawFiles);
+                addIfExists(dimDir, Paths.get("region3d", name + ".ext"), rawFiles);
+            }
+            String name2d = entry.getKey().getX() + "." + entry.getKey().getY() + ".2dr";
+            addIfExists(dimDir, Paths.get("region2d", name2d), rawFiles);
+            addIfExists(dimDir, Paths.get("region2d", name2d + ".ext"), rawFiles);
+        }
+        return rawRegions;
+    }
+
+    private static void addIfExists(Path dir, Path file, List<Path> files) {
+        if (Files.exists(dir.resolve(file))) {
+            files.add(file);
+        }
+    }
+
+    private static Vector3i parseRegion3d(String name) {
+        String[] split = name.split("\\.");
+        if (split.length != 4 || !split[3].equals("3dr")) {
+            return null;
+        }
+        try {
+            return new Vector3i(Integer.parseInt(split[0]), Integer.parseInt(split[1]), Integer.parseInt(split[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @Override public void loadChunks(Consumer<? super PriorityCubicChunksColumnData> consumer, Predicate<Throwable> errorHandler) throws IOException, InterruptedException {
         try {
             ChunkList list = chunkList.get();
@@ -226,13 +309,22 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
     }
 
     private void doLoadChunks(Consumer<? super PriorityCubicChunksColumnData> consumer, ChunkList list) throws IOException {
+        for (Map.Entry<Dimension, List<Path>> dimEntry : list.getRawFiles().entrySet()) {
+            Path dimDir = getDimensionPath(dimEntry.getKey(), srcDir);
+            for (Path file : dimEntry.getValue()) {
+                if (Thread.interrupted()) {
+                    return;
+                }
+                consumer.accept(PriorityCubicChunksColumnData.rawRegionFile(dimEntry.getKey(), dimDir, file));
+            }
+        }
         for (Map.Entry<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> dimEntry : list.getChunks().entrySet()) {
             if (Thread.interrupted()) {
                 return;
             }
             Dimension dim = dimEntry.getKey();
             SaveCubeColumns save = saves.get(dim);
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            io.forEachBlocking(dimEntry.getValue(), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
@@ -263,7 +355,9 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
         loadThread.interrupt();
     }
 
-    private static SaveCubeColumns createSave(Path path) {
+    private static SaveCubeColumns createSave(Path path,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d,
+            Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d) {
         try {
             Utils.createDirectories(path);
 
@@ -336,13 +430,19 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
     private static class ChunkList {
 
         private final Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> chunks;
+        private final Map<Dimension, List<Path>> rawFiles;
 
-        private ChunkList(Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> chunks) {
+        private ChunkList(Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> chunks, Map<Dimension, List<Path>> rawFiles) {
             this.chunks = chunks;
+            this.rawFiles = rawFiles;
         }
 
         Map<Dimension, List<Map.Entry<EntryLocation2D, IntArrayList>>> getChunks() {
             return chunks;
         }
+
+        Map<Dimension, List<Path>> getRawFiles() {
+            return rawFiles;
+        }
     }
 }
\ No newline at end of file
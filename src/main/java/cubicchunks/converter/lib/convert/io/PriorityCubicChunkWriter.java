@@ -23,7 +23,10 @@
  */
 package cubicchunks.converter.lib.convert.io;
 
+import com.carrotsearch.hppc.BitMixer;
+import com.carrotsearch.hppc.LongLongHashMap;
 import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.ChunkDataWriter;
 import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
 import cubicchunks.converter.lib.util.*;
@@ -39,6 +42,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -46,17 +50,103 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class PriorityCubicChunkWriter implements ChunkDataWriter<PriorityCubicChunksColumnData> {
 
+    // config key to hard link unchanged region files instead of copying them. Hard links share the file contents with
+    // the source world, so modifying one world in place modifies both. Defaults to the relocating.linkRegions system
+    // property, off if it's not set
+    public static final String LINK_RAW_REGIONS = "linkRawRegions";
+
+    // config key to spill cubes to disk partitioned by destination region, and write them one region at a time when closing.
+    // Keeps memory bounded and writes sequential when relocations scatter cubes across the world. Defaults to the
+    // relocating.shuffle system property, off if it's not set
+    public static final String SHUFFLE = "shuffleCubes";
+    // config key for the memory buffer of the shuffle, in MB. Defaults to the relocating.shuffleBufferMB system property,
+    // 256 if it's not set
+    public static final String SHUFFLE_BUFFER_MB = "shuffleBufferMB";
+    private static final boolean DEFAULT_LINK_RAW_REGIONS = Boolean.getBoolean("relocating.linkRegions");
+    private static final boolean DEFAULT_SHUFFLE = Boolean.getBoolean("relocating.shuffle");
+    private static final long DEFAULT_SHUFFLE_BUFFER_MB = Long.getLong("relocating.shuffleBufferMB", 256);
+
     private final Path dstPath;
     private final Map<Dimension, SaveCubeColumns> saves = new ConcurrentHashMap<>();
+    private final boolean linkRawRegions;
+    private final CubeShuffle shuffle;
 
     public PriorityCubicChunkWriter(Path dstPath) {
+        this(dstPath, new ConverterConfig(new HashMap<>()));
+    }
+
+    public PriorityCubicChunkWriter(Path dstPath, ConverterConfig config) {
         this.dstPath = dstPath;
+        this.linkRawRegions = config.getBool(LINK_RAW_REGIONS, DEFAULT_LINK_RAW_REGIONS);
+        this.shuffle = config.getBool(SHUFFLE, DEFAULT_SHUFFLE)
+                ? new CubeShuffle(dstPath.resolve(".relocation-shuffle"), config.getLong(SHUFFLE_BUFFER_MB, DEFAULT_SHUFFLE_BUFFER_MB) << 20)
+                : null;
     }
 
-    private Map<Vector3i, Long> cubePriorities = new HashMap<>();
+    // highest priority written so far for each cube of each dimension, keyed by packed cube position.
+    // Striped so that several threads can write
+    private static final int PRIORITY_STRIPES = 64;
+    private final Map<Dimension, LongLongHashMap[]> cubePriorities = new ConcurrentHashMap<>();
+    // the same for cubes too far out to pack, keyed by exact position. Only reached by extreme boxes and offsets
+    private final Map<Dimension, Map<Vector3i, Long>> farCubePriorities = new ConcurrentHashMap<>();
 
     @Override public void accept(PriorityCubicChunksColumnData data) throws IOException {
-        SaveCubeColumns save = saves.computeIfAbsent(data.getDimension(), dim -> {
+        if (data.isRawRegionFile()) {
+            copyRawRegionFile(data);
+            return;
+        }
+        SaveCubeColumns save = getSave(data.getDimension());
+        EntryLocation2D pos = data.getPosition();
+        if (data.getColumnData() != null) {
+            save.save2d(pos, data.getColumnData());
+        }
+        if (shuffle != null) {
+            for (Map.Entry<Integer, ImmutablePair<Long, ByteBuffer>> entry : data.getCubeData().entrySet()) {
+                shuffle.add(data.getDimension(), pos.getEntryX(), entry.getKey(), pos.getEntryZ(), entry.getValue().getKey(), entry.getValue().getValue());
+            }
+            return;
+        }
+        LongLongHashMap[] dimPriorities = cubePriorities.computeIfAbsent(data.getDimension(), dim -> {
+            LongLongHashMap[] stripes = new LongLongHashMap[PRIORITY_STRIPES];
+            for (int i = 0; i < PRIORITY_STRIPES; i++) {
+                stripes[i] = new LongLongHashMap();
+            }
+            return stripes;
+        });
+        for (Map.Entry<Integer, ImmutablePair<Long, ByteBuffer>> entry : data.getCubeData().entrySet()) {
+            long priority = entry.getValue().getKey();
+            if (!canPackCubePos(pos.getEntryX(), entry.getKey(), pos.getEntryZ())) {
+                Map<Vector3i, Long> priorities = farCubePriorities.computeIfAbsent(data.getDimension(), dim -> new HashMap<>());
+                Vector3i cubePos = new Vector3i(pos.getEntryX(), entry.getKey(), pos.getEntryZ());
+                synchronized (priorities) {
+                    Long written = priorities.get(cubePos);
+                    if (written != null && priority <= written) {
+                        continue;
+                    }
+                    priorities.put(cubePos, priority);
+                    save.save3d(new EntryLocation3D(pos.getEntryX(), entry.getKey(), pos.getEntryZ()), entry.getValue().getValue());
+                }
+                continue;
+            }
+            long key = packCubePos(pos.getEntryX(), entry.getKey(), pos.getEntryZ());
+            LongLongHashMap priorities = dimPriorities[(int) (BitMixer.mix64(key) & (PRIORITY_STRIPES - 1))];
+            // saving while holding the lock, so a lower priority cube can't overwrite a higher priority one written concurrently
+            synchronized (priorities) {
+                int index = priorities.indexOf(key);
+                if (index < 0) {
+                    priorities.indexInsert(index, key, priority);
+                } else if (priority > priorities.indexGet(index)) {
+                    priorities.indexReplace(index, priority);
+                } else {
+                    continue;
+                }
+                save.save3d(new EntryLocation3D(pos.getEntryX(), entry.getKey(), pos.getEntryZ()), entry.getValue().getValue());
+            }
+        }
+    }
+
+    private SaveCubeColumns getSave(Dimension dimension) {
+        return saves.computeIfAbsent(dimension, dim -> {
             try {
                 Path path = dstPath.resolve(dim.getDirectory());
 
@@ -110,19 +200,46 @@ public class PriorityCubicChunkWriter implements ChunkDataWriter<PriorityCubicCh
                 throw new RuntimeException(e);
             }
         });
-        EntryLocation2D pos = data.getPosition();
-        if (data.getColumnData() != null) {
-            save.save2d(pos, data.getColumnData());
+    }
+
+    /**
+     * @return whether {@link #packCubePos} gives a distinct key for the cube. Positions outside of this range would wrap
+     * onto other cubes.
+     */
+    static boolean canPackCubePos(int x, int y, int z) {
+        return x >= -(1 << 21) && x < 1 << 21 && y >= -(1 << 19) && y < 1 << 19 && z >= -(1 << 21) && z < 1 << 21;
+    }
+
+    /**
+     * Packs cube coordinates into a long, with 22 bits for x and z and 20 bits for y. This covers the whole
+     * 30 million block world border horizontally and +-8 million blocks vertically, see {@link #canPackCubePos}.
+     */
+    static long packCubePos(int x, int y, int z) {
+        return ((long) x & 0x3FFFFF) << 42 | ((long) y & 0xFFFFF) << 22 | (long) z & 0x3FFFFF;
+    }
+
+    private void copyRawRegionFile(PriorityCubicChunksColumnData data) throws IOException {
+        Path srcDir = data.getRawSourceDir();
+        Path dstDir = dstPath.resolve(data.getDimension().getDirectory());
+        Path srcFile = srcDir.resolve(data.getRawFile());
+        if (Files.isDirectory(srcFile)) {
+            // .ext directories of a region
+            Utils.createDirectories(dstDir.resolve(data.getRawFile()));
+            Utils.copyEverythingExcept(srcFile, srcDir, dstDir, file -> false, file -> {});
+            return;
         }
-        EntryLocation2D entryPos = data.getPosition();
-        for (Map.Entry<Integer, ImmutablePair<Long, ByteBuffer>> entry : data.getCubeData().entrySet()) {
-            Vector3i cubePos = new Vector3i(entryPos.getEntryX(), entry.getKey(), entryPos.getEntryZ());
-            Long priority = cubePriorities.get(cubePos);
-            if(priority == null || entry.getValue().getFirst() > priority) {
-                cubePriorities.put(cubePos, entry.getValue().getKey());
-                save.save3d(new EntryLocation3D(pos.getEntryX(), entry.getKey(), pos.getEntryZ()), entry.getValue().getValue());
+        Path dstFile = dstDir.resolve(data.getRawFile());
+        Utils.createDirectories(dstFile.getParent());
+        if (linkRawRegions) {
+            try {
+                Files.deleteIfExists(dstFile);
+                Files.createLink(dstFile, srcFile);
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                // different file system or no hard link support, copy instead
             }
         }
+        Files.copy(srcFile, dstFile, StandardCopyOption.REPLACE_EXISTING);
     }
 
     @Override public void discardData() throws IOException {
@@ -131,6 +248,16 @@ public class PriorityCubicChunkWriter implements ChunkDataWriter<PriorityCubicCh
 
     @Override public void close() throws Exception {
         boolean exception = false;
+        if (shuffle != null) {
+            try {
+                shuffle.merge((dim, location, cube) -> getSave(dim).save3d(location, cube));
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                exception = true;
+            } finally {
+                shuffle.close();
+            }
+        }
         for (SaveCubeColumns save : saves.values()) {
             try {
                 save.close();
@@ -0,0 +1,142 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ChunkDataReader;
+import cubicchunks.converter.lib.convert.data.RegionMergeData;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Reads the region files of several cubic chunks worlds to merge them. Each region present in any of the worlds is
+ * read once, as a list of the worlds that have it, and the entries are merged by {@link RegionMergeWriter} without
+ * decompressing them.
+ * <p>
+ * The source world has the lowest priority. The worlds in the "mergeSources" config value are merged over it, each
+ * one overriding the ones before it.
+ */
+public class RegionMergeReader implements ChunkDataReader<RegionMergeData> {
+
+    private static final String[] REGION_DIRECTORIES = {"region2d", "region3d"};
+
+    private final List<Path> worlds = new ArrayList<>();
+    private final CompletableFuture<List<RegionMergeData>> regions = new CompletableFuture<>();
+    private final Thread loadThread;
+
+    @SuppressWarnings("unchecked")
+    public RegionMergeReader(Path srcDir, ConverterConfig config) {
+        worlds.add(srcDir);
+        if (config.hasValue("mergeSources")) {
+            worlds.addAll((List<Path>) config.getValue("mergeSources"));
+        }
+        loadThread = Thread.currentThread();
+    }
+
+    private static Path getDimensionPath(Dimension d, Path worldDir) {
+        if (!d.getDirectory().isEmpty()) {
+            worldDir = worldDir.resolve(d.getDirectory());
+        }
+        return worldDir;
+    }
+
+    @Override public void countInputChunks(Runnable increment) throws IOException {
+        List<RegionMergeData> list = new ArrayList<>();
+        for (Dimension dim : Dimensions.getDimensions()) {
+            for (String regionDirectory : REGION_DIRECTORIES) {
+                // sorted, so regions are written in a stable order
+                Map<String, List<Path>> sources = new TreeMap<>();
+                for (Path world : worlds) {
+                    if (Thread.interrupted()) {
+                        regions.complete(null);
+                        return;
+                    }
+                    Path dir = getDimensionPath(dim, world).resolve(regionDirectory);
+                    if (!Files.isDirectory(dir)) {
+                        continue;
+                    }
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                        for (Path file : stream) {
+                            String name = file.getFileName().toString();
+                            if (name.endsWith(".ext")) {
+                                name = name.substring(0, name.length() - ".ext".length());
+                            }
+                            if (!name.endsWith(".2dr") && !name.endsWith(".3dr")) {
+                                continue;
+                            }
+                            List<Path> regionSources = sources.computeIfAbsent(name, n -> new ArrayList<>());
+                            // a region file and its .ext directory are listed separately
+                            if (regionSources.isEmpty() || !regionSources.get(regionSources.size() - 1).equals(dir)) {
+                                regionSources.add(dir);
+                            }
+                        }
+                    }
+                }
+                for (Map.Entry<String, List<Path>> entry : sources.entrySet()) {
+                    list.add(new RegionMergeData(dim, regionDirectory, entry.getKey(), entry.getValue()));
+                    increment.run();
+                }
+            }
+        }
+        regions.complete(list);
+    }
+
+    @Override public void loadChunks(Consumer<? super RegionMergeData> consumer, Predicate<Throwable> errorHandler) throws InterruptedException {
+        List<RegionMergeData> list;
+        try {
+            list = regions.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        if (list == null) {
+            return; // counting interrupted
+        }
+        for (RegionMergeData data : list) {
+            if (Thread.interrupted()) {
+                return;
+            }
+            consumer.accept(data);
+        }
+    }
+
+    @Override public void stop() {
+        loadThread.interrupt();
+    }
+
+    @Override public void close() {
+    }
+}
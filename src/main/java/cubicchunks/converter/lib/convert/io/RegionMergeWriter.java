@@ -0,0 +1,164 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import cubicchunks.converter.lib.convert.ChunkDataWriter;
+import cubicchunks.converter.lib.convert.data.RegionMergeData;
+import cubicchunks.converter.lib.util.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Writes merged regions by copying the sectors of each entry from the source region it was chosen from. Entries are
+ * never decompressed, and consecutive entries that are also consecutive in their source are copied with one transfer.
+ */
+public class RegionMergeWriter implements ChunkDataWriter<RegionMergeData> {
+
+    private static final int SECTOR_SIZE = 512;
+    private static final int SIZE_BITS = 8;
+    private static final int SIZE_MASK = (1 << SIZE_BITS) - 1;
+
+    private final Path dstPath;
+
+    public RegionMergeWriter(Path dstPath) {
+        this.dstPath = dstPath;
+    }
+
+    @Override public void accept(RegionMergeData data) throws IOException {
+        if (!data.isPlanned()) {
+            throw new IllegalArgumentException("Region merge not planned: " + data);
+        }
+        int[] entrySources = data.getEntrySources();
+        int[] entryLocations = data.getEntryLocations();
+        BitSet extEntries = data.getExtEntries();
+        List<Path> sources = data.getSources();
+        String name = data.getRegionName();
+
+        Path dstDir = dstPath.resolve(data.getDimension().getDirectory()).resolve(data.getRegionDirectory());
+        Utils.createDirectories(dstDir);
+
+        // oversized entries are separate files, and the header keeps the source's marker for them
+        for (int i = extEntries.nextSetBit(0); i >= 0; i = extEntries.nextSetBit(i + 1)) {
+            Path dstExt = dstDir.resolve(name + ".ext");
+            Utils.createDirectories(dstExt);
+            String entry = String.valueOf(i);
+            Files.copy(sources.get(entrySources[i]).resolve(name + ".ext").resolve(entry), dstExt.resolve(entry), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        int entryCount = entrySources.length;
+        int headerSectors = ceilDiv(entryCount * Integer.BYTES, SECTOR_SIZE);
+        int[] header = new int[entryCount];
+        int writeSector = headerSectors;
+        boolean empty = true;
+        for (int i = 0; i < entryCount; i++) {
+            if (entrySources[i] < 0) {
+                continue;
+            }
+            empty = false;
+            if (extEntries.get(i)) {
+                header[i] = entryLocations[i];
+                continue;
+            }
+            int size = entryLocations[i] & SIZE_MASK;
+            header[i] = writeSector << SIZE_BITS | size;
+            writeSector += size;
+        }
+        if (empty) {
+            return;
+        }
+
+        FileChannel[] channels = new FileChannel[sources.size()];
+        try (FileChannel out = FileChannel.open(dstDir.resolve(name),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer headerBuf = ByteBuffer.allocate(headerSectors * SECTOR_SIZE);
+            headerBuf.asIntBuffer().put(header);
+            while (headerBuf.hasRemaining()) {
+                out.write(headerBuf);
+            }
+
+            int runSource = -1;
+            long runStart = 0, runLength = 0;
+            for (int i = 0; i < entryCount; i++) {
+                int source = entrySources[i];
+                if (source < 0 || extEntries.get(i)) {
+                    continue;
+                }
+                long start = (long) (entryLocations[i] >>> SIZE_BITS) * SECTOR_SIZE;
+                long length = (long) (entryLocations[i] & SIZE_MASK) * SECTOR_SIZE;
+                if (source == runSource && start == runStart + runLength) {
+                    runLength += length;
+                    continue;
+                }
+                transfer(channels, sources, name, runSource, runStart, runLength, out);
+                runSource = source;
+                runStart = start;
+                runLength = length;
+            }
+            transfer(channels, sources, name, runSource, runStart, runLength, out);
+        } finally {
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private static void transfer(FileChannel[] channels, List<Path> sources, String name, int source, long start, long length, FileChannel out) throws IOException {
+        if (source < 0 || length == 0) {
+            return;
+        }
+        if (channels[source] == null) {
+            channels[source] = FileChannel.open(sources.get(source).resolve(name), StandardOpenOption.READ);
+        }
+        FileChannel in = channels[source];
+        while (length > 0) {
+            long n = in.transferTo(start, length, out);
+            if (n <= 0) {
+                throw new IOException("Region " + sources.get(source).resolve(name) + " ends before sector " + start / SECTOR_SIZE);
+            }
+            start += n;
+            length -= n;
+        }
+    }
+
+    private static int ceilDiv(int x, int y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    @Override public void discardData() throws IOException {
+        Utils.rm(dstPath);
+    }
+
+    @Override public void close() {
+    }
+}
@@ -33,6 +33,7 @@ import cubicchunks.converter.lib.convert.data.RobintonColumnData;
 import cubicchunks.converter.lib.convert.robinton2cc.RobintonEntryLocation3D;
 import cubicchunks.converter.lib.convert.robinton2cc.RobintonSaveSection;
 import cubicchunks.converter.lib.util.UncheckedInterruptedException;
+import cubicchunks.converter.lib.util.Vector2i;
 import cubicchunks.regionlib.api.storage.SaveSection;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 import cubicchunks.regionlib.impl.EntryLocation3D;
@@ -42,6 +43,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -113,36 +117,48 @@ public class RobintonChunkReader extends BaseMinecraftReader<RobintonColumnData,
             }
             Dimension dim = dimEntry.getKey();
             RobintonSaveSection save = saves.get(dim);
-            for (Map.Entry<EntryLocation2D, IntArrayList> chunksEntry : dimEntry.getValue().entrySet()) {
-                if (Thread.interrupted()) {
-                    return;
-                }
-                EntryLocation2D pos2d = chunksEntry.getKey();
-                IntArrayList yCoords = chunksEntry.getValue();
-                Map<Integer, ByteBuffer> cubes = new ConcurrentHashMap<>();
-                for (IntCursor yCursor : yCoords) {
+            // columns in the same 32x32 area share region files, so keep them on one thread
+            groupByRegion(dimEntry.getValue()).parallelStream().forEach(region -> {
+                for (Map.Entry<EntryLocation2D, IntArrayList> chunksEntry : region) {
                     if (Thread.interrupted()) {
                         return;
                     }
-                    int y = yCursor.value;
-                    ByteBuffer cube;
-                    try {
-                        cube = save.load(new RobintonEntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElseThrow(
-                                () -> new IllegalStateException("Expected cube at " + pos2d + " at y=" + y + " in dimension " + dim));
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        if (!errorHandler.test(e)) {
+                    EntryLocation2D pos2d = chunksEntry.getKey();
+                    IntArrayList yCoords = chunksEntry.getValue();
+                    Map<Integer, ByteBuffer> cubes = new HashMap<>();
+                    for (IntCursor yCursor : yCoords) {
+                        if (Thread.interrupted()) {
                             return;
                         }
-                        continue;
-                    }
+                        int y = yCursor.value;
+                        ByteBuffer cube;
+                        try {
+                            cube = save.load(new RobintonEntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElseThrow(
+                                    () -> new IllegalStateException("Expected cube at " + pos2d + " at y=" + y + " in dimension " + dim));
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                            if (!errorHandler.test(e)) {
+                                throw new UncheckedInterruptedException();
+                            }
+                            continue;
+                        }
 
-                    cubes.put(y, cube);
+                        cubes.put(y, cube);
+                    }
+                    RobintonColumnData data = new RobintonColumnData(dim, pos2d, cubes);
+                    consumer.accept(data);
                 }
-                RobintonColumnData data = new RobintonColumnData(dim, pos2d, cubes);
-                consumer.accept(data);
-            }
+            });
+        }
+    }
+
+    private static List<List<Map.Entry<EntryLocation2D, IntArrayList>>> groupByRegion(Map<EntryLocation2D, IntArrayList> columns) {
+        Map<Vector2i, List<Map.Entry<EntryLocation2D, IntArrayList>>> regions = new HashMap<>();
+        for (Map.Entry<EntryLocation2D, IntArrayList> column : columns.entrySet()) {
+            Vector2i regionPos = new Vector2i(column.getKey().getEntryX() >> 5, column.getKey().getEntryZ() >> 5);
+            regions.computeIfAbsent(regionPos, p -> new ArrayList<>()).add(column);
         }
+        return new ArrayList<>(regions.values());
     }
 
     @Override public void stop() {
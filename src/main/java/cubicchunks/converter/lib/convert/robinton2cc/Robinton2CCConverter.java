@@ -26,29 +26,42 @@ package cubicchunks.converter.lib.convert.robinton2cc;
 import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.RobintonColumnData;
-import net.kyori.nbt.ByteArrayTag;
+import cubicchunks.converter.lib.util.CubeNbtEncoder;
 import net.kyori.nbt.CompoundTag;
-import net.kyori.nbt.IntArrayTag;
-import net.kyori.nbt.ListTag;
+import net.kyori.nbt.Tag;
 import net.kyori.nbt.TagIO;
 import net.kyori.nbt.TagTypeMaps;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 import java.util.zip.InflaterInputStream;
 
 public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnData, CubicChunksColumnData> {
 
+    // new index -> old index, and the shift of the old nibble within its byte
+    private static final short[] FLIP_XY = new short[4096];
+    private static final byte[] NIBBLE_SHIFT = new byte[4096];
+
+    static {
+        for (int i = 0; i < 4096; i++) {
+            int x = i & 15;
+            int y = i >> 8 & 15;
+            int z = i >> 4 & 15;
+            // current: yyyy zzzz xxxx
+            // old:     xxxx zzzz yyyy
+            int oldIdx = y | z << 4 | x << 8;
+            FLIP_XY[i] = (short) oldIdx;
+            NIBBLE_SHIFT[i] = (byte) ((oldIdx & 1) << 2);
+        }
+    }
+
     @Override public Set<CubicChunksColumnData> convert(RobintonColumnData input) {
         try {
             Map<Integer, ByteBuffer> newData = new HashMap<>();
@@ -56,16 +69,12 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
                 ByteBuffer buf = input.getCubeData().get(y);
                 if (buf == RobintonSaveSection.EMPTY_BUFFER) {
                     newData.put(y, makeEmpty(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ()));
+                    continue;
                 }
                 CompoundTag tag = readCompressed(buf);
 
                 CompoundTag oldLevel = tag.getCompound("Level");
-                CompoundTag newLevel = convertCube(input, oldLevel, y);
-
-                CompoundTag newTag = new CompoundTag();
-                newTag.put("Level", newLevel);
-
-                newData.put(y, writeCompressed(newTag));
+                newData.put(y, convertCube(input, oldLevel, y));
             }
 
             return Collections.singleton( new CubicChunksColumnData(input.getDimension(), input.getPosition(), null, newData));
@@ -75,29 +84,16 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
     }
 
     private ByteBuffer makeEmpty(int x, int y, int z) throws IOException {
-        CompoundTag level = new CompoundTag();
-
-        level.putInt("v", 1);
-        level.putInt("x", x);
-        level.putInt("y", y);
-        level.putInt("z", z);
         // some old worlds don't appear to have this flag, and populating those chunks again causes weird effects
-        level.putBoolean("populated", true);
-        level.putBoolean("fullyPopulated", true);
-        level.putBoolean("initLightDone", true);
-        level.putBoolean("isSurfaceTracked", true);
-
-        level.put("LightingInfo", makeLightingInfo());
-
-
-        CompoundTag root = new CompoundTag();
-        root.put("Level", level);
-
-        return writeCompressed(root);
+        return new CubeNbtEncoder(x, y, z)
+                .populated(true, true)
+                .initLightDone(true)
+                .surfaceTracked(true)
+                .lastHeightMap(makeLastHeightMap())
+                .encode();
     }
 
-    private CompoundTag convertCube(RobintonColumnData input, CompoundTag oldLevel, int y) {
-        CompoundTag newLevel = new CompoundTag();
+    private ByteBuffer convertCube(RobintonColumnData input, CompoundTag oldLevel, int y) throws IOException {
         /*
          * Robinton's NBT:
          * ROOT
@@ -141,76 +137,64 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
             System.out.println("Stored Y coordinate " + oldY + " doesn't match region derived cube NBT position " +
                     y + ", Using region-derived position");
         }
-        newLevel.putInt("v", 1);
-        newLevel.putInt("x", input.getPosition().getEntryX());
-        newLevel.putInt("y", y);
-        newLevel.putInt("z", input.getPosition().getEntryZ());
-        // some old worlds don't appear to have this flag, and populating those chunks again causes weird effects
-        newLevel.putBoolean("populated", !oldLevel.contains("TerrainPopulated") || oldLevel.getBoolean("TerrainPopulated"));
-        newLevel.putBoolean("fullyPopulated", true);
-        newLevel.putBoolean("initLightDone", true);
-        newLevel.putBoolean("isSurfaceTracked", false);
-
-        CompoundTag section = new CompoundTag();
-        {
-            section.put("Blocks", flipXYFull(oldLevel.getByteArray("Blocks")));
-            section.put("Data", flipXYNibble(oldLevel.getByteArray("Data")));
-            section.put("BlockLight", flipXYNibble(oldLevel.getByteArray("BlockLight")));
-            section.put("SkyLight", flipXYNibble(oldLevel.getByteArray("SkyLight")));
-        }
-        ListTag sections = new ListTag();
-        sections.add(section);
-
-        newLevel.put("Sections", sections);
-        newLevel.put("TileEntities", oldLevel.getList("TileEntities"));
-        newLevel.put("Entities", oldLevel.getList("Entities"));
-        newLevel.put("LightingInfo", makeLightingInfo());
-        return newLevel;
+        byte[] blocks = new byte[4096];
+        byte[] data = new byte[2048];
+        byte[] blockLight = new byte[2048];
+        byte[] skyLight = new byte[2048];
+        flipXY(oldLevel.getByteArray("Blocks"), oldLevel.getByteArray("Data"), oldLevel.getByteArray("BlockLight"), oldLevel.getByteArray("SkyLight"),
+                blocks, data, blockLight, skyLight);
+
+        return new CubeNbtEncoder(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ())
+                // some old worlds don't appear to have this flag, and populating those chunks again causes weird effects
+                .populated(!oldLevel.contains("TerrainPopulated") || oldLevel.getBoolean("TerrainPopulated"), true)
+                .initLightDone(true)
+                .surfaceTracked(false)
+                .section(blocks, data, null, null, blockLight, skyLight)
+                .entities(
+                        encodeNamedTag("Entities", oldLevel.getList("Entities")),
+                        encodeNamedTag("TileEntities", oldLevel.getList("TileEntities")),
+                        null)
+                .lastHeightMap(makeLastHeightMap())
+                .encode();
     }
 
-    private ByteArrayTag flipXYFull(byte[] dataIn) {
-        byte[] newData = new byte[4096];
-        for (int i = 0; i < 4096; i++) {
-            int x = i & 15;
-            int y = i >> 8 & 15;
-            int z = i >> 4 & 15;
-            // current: yyyy zzzz xxxx
-            // old:     xxxx zzzz yyyy
-            int oldIdx = y | z << 4 | x << 8;
-            newData[i] = dataIn[oldIdx];
-        }
-        return new ByteArrayTag(newData);
+    /**
+     * Encodes a single named tag, as expected by {@link CubeNbtEncoder#entities}
+     */
+    private static byte[] encodeNamedTag(String name, Tag tag) throws IOException {
+        CompoundTag wrapper = new CompoundTag();
+        wrapper.put(name, tag);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        TagIO.writeOutputStream(TagTypeMaps.ROBINTON, wrapper, bytes);
+        byte[] data = bytes.toByteArray();
+        // strip the root compound header (type id and empty name) and the trailing end tag
+        return Arrays.copyOfRange(data, 3, data.length - 1);
     }
 
-    private ByteArrayTag flipXYNibble(byte[] dataIn) {
-        byte[] newData = new byte[2048];
-        for (int newIdx = 0; newIdx < 4096; newIdx++) {
-            int x = newIdx & 15;
-            int y = newIdx >> 8 & 15;
-            int z = newIdx >> 4 & 15;
-            // current: yyyy zzzz xxxx
-            // old:     xxxx zzzz yyyy
-            int oldIdx = y | z << 4 | x << 8;
-
-            int oldNibbleIdx = oldIdx >>> 1;
-            int nibbleIdx = newIdx >>> 1;
-
-            boolean oldLower = (oldIdx & 1) == 0;
-            boolean newLower = (newIdx & 1) == 0;
-
-            int data = (dataIn[oldNibbleIdx] >>> (oldLower ? 0 : 4)) & 0xF;
-            newData[nibbleIdx] |= data << (newLower ? 0 : 4);
+    /**
+     * Reorders blocks, block metadata and both light arrays from Robinton's xzy order to yzx order in one pass.
+     */
+    static void flipXY(byte[] blocksIn, byte[] dataIn, byte[] blockLightIn, byte[] skyLightIn,
+            byte[] blocksOut, byte[] dataOut, byte[] blockLightOut, byte[] skyLightOut) {
+        for (int i = 0; i < 4096; i += 2) {
+            int old0 = FLIP_XY[i];
+            int old1 = FLIP_XY[i + 1];
+            blocksOut[i] = blocksIn[old0];
+            blocksOut[i + 1] = blocksIn[old1];
+
+            int nibbleIdx0 = old0 >>> 1, shift0 = NIBBLE_SHIFT[i];
+            int nibbleIdx1 = old1 >>> 1, shift1 = NIBBLE_SHIFT[i + 1];
+            int nibbleOut = i >>> 1;
+            dataOut[nibbleOut] = (byte) ((dataIn[nibbleIdx0] >>> shift0) & 0xF | ((dataIn[nibbleIdx1] >>> shift1) & 0xF) << 4);
+            blockLightOut[nibbleOut] = (byte) ((blockLightIn[nibbleIdx0] >>> shift0) & 0xF | ((blockLightIn[nibbleIdx1] >>> shift1) & 0xF) << 4);
+            skyLightOut[nibbleOut] = (byte) ((skyLightIn[nibbleIdx0] >>> shift0) & 0xF | ((skyLightIn[nibbleIdx1] >>> shift1) & 0xF) << 4);
         }
-        return new ByteArrayTag(newData);
     }
 
-    private CompoundTag makeLightingInfo() {
+    private int[] makeLastHeightMap() {
         int[] arr = new int[256];
         Arrays.fill(arr, Integer.MIN_VALUE / 2);
-        IntArrayTag heightmap = new IntArrayTag(arr);
-        CompoundTag lightingInfoMap = new CompoundTag();
-        lightingInfoMap.put("LastHeightMap", heightmap);
-        return lightingInfoMap;
+        return arr;
     }
 
 
@@ -229,13 +213,4 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
         return TagIO.readInputStream(TagTypeMaps.ROBINTON, data);
     }
 
-    private static ByteBuffer writeCompressed(CompoundTag tag) throws IOException {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
-        OutputStream nbtOut = new BufferedOutputStream(new GZIPOutputStream(bytes, 4096), 4096);
-        TagIO.writeOutputStream(TagTypeMaps.ROBINTON, tag, nbtOut);
-        nbtOut.close();
-        bytes.flush();
-        return ByteBuffer.wrap(bytes.toByteArray());
-    }
-
 }
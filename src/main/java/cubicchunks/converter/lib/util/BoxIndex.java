@@ -0,0 +1,153 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A spatial index of {@link BoundingBox}es, each with an int value attached, answering which boxes contain a position.
+ * <p>
+ * Boxes are bucketed into a grid of cells of size {@code 2^cellBits}. Boxes spanning too many cells are kept in a separate
+ * list and checked for every query. The index is not thread safe while boxes are added, but concurrent queries are fine.
+ */
+public class BoxIndex {
+
+    private static final int MAX_CELLS_PER_BOX = 512;
+    private static final int CELL_COORD_BITS = 21;
+    private static final int CELL_COORD_MASK = (1 << CELL_COORD_BITS) - 1;
+
+    private final int cellBits;
+    private final List<BoundingBox> boxes = new ArrayList<>();
+    private final IntArrayList values = new IntArrayList();
+    private final LongObjectHashMap<IntArrayList> cells = new LongObjectHashMap<>();
+    private final IntArrayList largeBoxes = new IntArrayList();
+
+    public BoxIndex(int cellBits) {
+        this.cellBits = cellBits;
+    }
+
+    public void add(BoundingBox box, int value) {
+        int boxId = boxes.size();
+        boxes.add(box);
+        values.add(value);
+
+        int minX = box.getMinPos().getX() >> cellBits, maxX = box.getMaxPos().getX() >> cellBits;
+        int minY = box.getMinPos().getY() >> cellBits, maxY = box.getMaxPos().getY() >> cellBits;
+        int minZ = box.getMinPos().getZ() >> cellBits, maxZ = box.getMaxPos().getZ() >> cellBits;
+        long cellCount = ((long) maxX - minX + 1) * ((long) maxY - minY + 1) * ((long) maxZ - minZ + 1);
+        if (cellCount > MAX_CELLS_PER_BOX) {
+            largeBoxes.add(boxId);
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    long key = cellKey(x, y, z);
+                    IntArrayList cell = cells.get(key);
+                    if (cell == null) {
+                        cell = new IntArrayList(2);
+                        cells.put(key, cell);
+                    }
+                    cell.add(boxId);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return boxes.isEmpty();
+    }
+
+    /**
+     * @return true if any box contains the given position
+     */
+    public boolean containsAny(int x, int y, int z) {
+        for (int i = 0; i < largeBoxes.size(); i++) {
+            if (boxes.get(largeBoxes.get(i)).intersects(x, y, z)) {
+                return true;
+            }
+        }
+        IntArrayList cell = cells.get(cellKey(x >> cellBits, y >> cellBits, z >> cellBits));
+        if (cell == null) {
+            return false;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+            if (boxes.get(cell.get(i)).intersects(x, y, z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the values of all the boxes containing the given position, sorted and without duplicates
+     */
+    public int[] valuesAt(int x, int y, int z) {
+        IntArrayList found = null;
+        for (int i = 0; i < largeBoxes.size(); i++) {
+            int boxId = largeBoxes.get(i);
+            if (boxes.get(boxId).intersects(x, y, z)) {
+                found = addValue(found, values.get(boxId));
+            }
+        }
+        IntArrayList cell = cells.get(cellKey(x >> cellBits, y >> cellBits, z >> cellBits));
+        if (cell != null) {
+            for (int i = 0; i < cell.size(); i++) {
+                int boxId = cell.get(i);
+                if (boxes.get(boxId).intersects(x, y, z)) {
+                    found = addValue(found, values.get(boxId));
+                }
+            }
+        }
+        if (found == null) {
+            return new int[0];
+        }
+        int[] result = found.toArray();
+        Arrays.sort(result);
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[size - 1]) {
+                result[size++] = result[i];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static IntArrayList addValue(IntArrayList list, int value) {
+        if (list == null) {
+            list = new IntArrayList(4);
+        }
+        list.add(value);
+        return list;
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return (long) (x & CELL_COORD_MASK) << (CELL_COORD_BITS * 2) | (long) (y & CELL_COORD_MASK) << CELL_COORD_BITS | z & CELL_COORD_MASK;
+    }
+}
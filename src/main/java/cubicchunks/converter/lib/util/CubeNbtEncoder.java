@@ -0,0 +1,262 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the fixed CubicChunks 1.12 cube NBT layout directly into a GZIP stream, without building an intermediate tag tree.
+ * <p>
+ * Block and light data are taken as primitive arrays. Entities, tile entities and tile ticks are passed as already encoded
+ * named tags (tag type, name and payload), so the caller can encode them with whichever NBT library it already uses.
+ * Encoders are cheap and not thread safe, create one per cube.
+ */
+public class CubeNbtEncoder {
+
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_INT = 3;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+
+    private static final byte[] NAME_ROOT = name("");
+    private static final byte[] NAME_DATA_VERSION = name("DataVersion");
+    private static final byte[] NAME_LEVEL = name("Level");
+    private static final byte[] NAME_V = name("v");
+    private static final byte[] NAME_X = name("x");
+    private static final byte[] NAME_Y = name("y");
+    private static final byte[] NAME_Z = name("z");
+    private static final byte[] NAME_POPULATED = name("populated");
+    private static final byte[] NAME_FULLY_POPULATED = name("fullyPopulated");
+    private static final byte[] NAME_INIT_LIGHT_DONE = name("initLightDone");
+    private static final byte[] NAME_IS_SURFACE_TRACKED = name("isSurfaceTracked");
+    private static final byte[] NAME_SECTIONS = name("Sections");
+    private static final byte[] NAME_BLOCKS = name("Blocks");
+    private static final byte[] NAME_DATA = name("Data");
+    private static final byte[] NAME_ADD = name("Add");
+    private static final byte[] NAME_ADD2 = name("Add2");
+    private static final byte[] NAME_BLOCK_LIGHT = name("BlockLight");
+    private static final byte[] NAME_SKY_LIGHT = name("SkyLight");
+    private static final byte[] NAME_ENTITIES = name("Entities");
+    private static final byte[] NAME_TILE_ENTITIES = name("TileEntities");
+    private static final byte[] NAME_LIGHTING_INFO = name("LightingInfo");
+    private static final byte[] NAME_LAST_HEIGHT_MAP = name("LastHeightMap");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private boolean hasDataVersion;
+    private int dataVersion;
+    private final int x, y, z;
+    private boolean populated;
+    private boolean fullyPopulated;
+    private boolean initLightDone;
+    private boolean isSurfaceTracked;
+
+    private boolean hasSection;
+    private byte[] blocks;
+    private byte[] data;
+    private byte[] add;
+    private byte[] add2;
+    private byte[] blockLight;
+    private byte[] skyLight;
+
+    private byte[] entities;
+    private byte[] tileEntities;
+    private byte[] tileTicks;
+    private int[] lastHeightMap;
+
+    public CubeNbtEncoder(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public CubeNbtEncoder dataVersion(int dataVersion) {
+        this.hasDataVersion = true;
+        this.dataVersion = dataVersion;
+        return this;
+    }
+
+    public CubeNbtEncoder populated(boolean populated, boolean fullyPopulated) {
+        this.populated = populated;
+        this.fullyPopulated = fullyPopulated;
+        return this;
+    }
+
+    public CubeNbtEncoder initLightDone(boolean initLightDone) {
+        this.initLightDone = initLightDone;
+        return this;
+    }
+
+    public CubeNbtEncoder surfaceTracked(boolean isSurfaceTracked) {
+        this.isSurfaceTracked = isSurfaceTracked;
+        return this;
+    }
+
+    /**
+     * Sets the data of the single section of this cube. Only {@code blocks} and {@code data} are required,
+     * null arrays are not written.
+     */
+    public CubeNbtEncoder section(byte[] blocks, byte[] data, byte[] add, byte[] add2, byte[] blockLight, byte[] skyLight) {
+        this.hasSection = true;
+        this.blocks = blocks;
+        this.data = data;
+        this.add = add;
+        this.add2 = add2;
+        this.blockLight = blockLight;
+        this.skyLight = skyLight;
+        return this;
+    }
+
+    /**
+     * Sets the encoded Entities, TileEntities and TileTicks named tags. When entities or tile entities are null,
+     * an empty list is written instead. Null tile ticks are omitted.
+     */
+    public CubeNbtEncoder entities(byte[] entities, byte[] tileEntities, byte[] tileTicks) {
+        this.entities = entities;
+        this.tileEntities = tileEntities;
+        this.tileTicks = tileTicks;
+        return this;
+    }
+
+    public CubeNbtEncoder lastHeightMap(int[] lastHeightMap) {
+        this.lastHeightMap = lastHeightMap;
+        return this;
+    }
+
+    /**
+     * Encodes the cube as GZIP compressed NBT, in the same form as {@link Utils#writeCompressed(com.flowpowered.nbt.CompoundTag, boolean)}
+     * without prefix would produce.
+     */
+    public ByteBuffer encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes, BUFFER_SIZE), BUFFER_SIZE))) {
+            write(out);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        header(out, TAG_COMPOUND, NAME_ROOT);
+        if (hasDataVersion) {
+            header(out, TAG_INT, NAME_DATA_VERSION);
+            out.writeInt(dataVersion);
+        }
+        header(out, TAG_COMPOUND, NAME_LEVEL);
+        {
+            writeByte(out, NAME_V, 1);
+            writeInt(out, NAME_X, x);
+            writeInt(out, NAME_Y, y);
+            writeInt(out, NAME_Z, z);
+            writeByte(out, NAME_POPULATED, populated ? 1 : 0);
+            writeByte(out, NAME_FULLY_POPULATED, fullyPopulated ? 1 : 0);
+            writeByte(out, NAME_INIT_LIGHT_DONE, initLightDone ? 1 : 0);
+            writeByte(out, NAME_IS_SURFACE_TRACKED, isSurfaceTracked ? 1 : 0);
+
+            if (hasSection) {
+                header(out, TAG_LIST, NAME_SECTIONS);
+                out.writeByte(TAG_COMPOUND);
+                out.writeInt(1);
+                writeByteArray(out, NAME_BLOCKS, blocks);
+                writeByteArray(out, NAME_DATA, data);
+                writeByteArray(out, NAME_ADD, add);
+                writeByteArray(out, NAME_ADD2, add2);
+                writeByteArray(out, NAME_BLOCK_LIGHT, blockLight);
+                writeByteArray(out, NAME_SKY_LIGHT, skyLight);
+                out.writeByte(TAG_END);
+            }
+
+            writeTagOrEmptyList(out, NAME_ENTITIES, entities);
+            writeTagOrEmptyList(out, NAME_TILE_ENTITIES, tileEntities);
+            if (tileTicks != null) {
+                out.write(tileTicks);
+            }
+
+            header(out, TAG_COMPOUND, NAME_LIGHTING_INFO);
+            {
+                int[] heights = lastHeightMap == null ? new int[256] : lastHeightMap;
+                header(out, TAG_INT_ARRAY, NAME_LAST_HEIGHT_MAP);
+                out.writeInt(heights.length);
+                for (int h : heights) {
+                    out.writeInt(h);
+                }
+            }
+            out.writeByte(TAG_END);
+        }
+        out.writeByte(TAG_END);
+        out.writeByte(TAG_END);
+    }
+
+    private static void writeTagOrEmptyList(DataOutputStream out, byte[] name, byte[] encoded) throws IOException {
+        if (encoded != null) {
+            out.write(encoded);
+            return;
+        }
+        header(out, TAG_LIST, name);
+        out.writeByte(TAG_COMPOUND);
+        out.writeInt(0);
+    }
+
+    private static void writeByte(DataOutputStream out, byte[] name, int value) throws IOException {
+        header(out, TAG_BYTE, name);
+        out.writeByte(value);
+    }
+
+    private static void writeInt(DataOutputStream out, byte[] name, int value) throws IOException {
+        header(out, TAG_INT, name);
+        out.writeInt(value);
+    }
+
+    private static void writeByteArray(DataOutputStream out, byte[] name, byte[] value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        header(out, TAG_BYTE_ARRAY, name);
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static void header(DataOutputStream out, int type, byte[] name) throws IOException {
+        out.writeByte(type);
+        out.write(name);
+    }
+
+    // names are ASCII, so modified UTF-8 is the same as the raw bytes
+    private static byte[] name(String name) {
+        byte[] str = name.getBytes(StandardCharsets.US_ASCII);
+        byte[] out = new byte[str.length + 2];
+        out[0] = (byte) (str.length >>> 8);
+        out[1] = (byte) str.length;
+        System.arraycopy(str, 0, out, 2, str.length);
+        return out;
+    }
+}
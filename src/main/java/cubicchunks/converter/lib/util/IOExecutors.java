@@ -0,0 +1,70 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Where blocking region file reads of one conversion run. This version uses platform threads. On Java 21 and newer,
+ * the multi-release jar replaces it with one that runs them on virtual threads (see src/main/java21). Writes always
+ * stay on the single write thread of each output in WorldConverter.
+ */
+public final class IOExecutors {
+
+    // config key to turn off virtual threads on Java 21. Defaults to the converter.virtualThreads system property, on
+    // if it's not set
+    public static final String VIRTUAL_THREADS = "virtualThreads";
+    // config key for how many reads of one conversion may be in flight at once on Java 21. Defaults to the
+    // converter.ioDepth system property, 64 if it's not set
+    public static final String IO_DEPTH = "ioDepth";
+
+    private static final IOExecutors PLATFORM = new IOExecutors();
+
+    private IOExecutors() {
+    }
+
+    /**
+     * @param config the config of the conversion, or null for the defaults
+     */
+    public static IOExecutors fromConfig(@Nullable ConverterConfig config) {
+        return PLATFORM;
+    }
+
+    public boolean usesVirtualThreads() {
+        return false;
+    }
+
+    /**
+     * Runs the action for all items in parallel, and returns once it finished for all of them. Exceptions thrown by
+     * the action are rethrown.
+     */
+    public <T> void forEachBlocking(Collection<T> items, Consumer<? super T> action) {
+        items.parallelStream().forEach(action);
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import com.flowpowered.nbt.ByteArrayTag;
+import com.flowpowered.nbt.ByteTag;
+import com.flowpowered.nbt.CompoundMap;
+import com.flowpowered.nbt.CompoundTag;
+import com.flowpowered.nbt.DoubleTag;
+import com.flowpowered.nbt.EndTag;
+import com.flowpowered.nbt.FloatTag;
+import com.flowpowered.nbt.IntArrayTag;
+import com.flowpowered.nbt.IntTag;
+import com.flowpowered.nbt.ListTag;
+import com.flowpowered.nbt.LongTag;
+import com.flowpowered.nbt.ShortArrayTag;
+import com.flowpowered.nbt.ShortTag;
+import com.flowpowered.nbt.StringTag;
+import com.flowpowered.nbt.Tag;
+import com.flowpowered.nbt.TagType;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uncompressed NBT reader producing flow-nbt tags, which avoids allocating a new {@link String} for every tag name.
+ * <p>
+ * Names, and string values that are namespaced ids like {@code minecraft:chest}, are looked up directly from the raw
+ * bytes in a per-thread table pre-seeded with the names used by vanilla and CubicChunks chunk data. Names and ids not
+ * in the table are added to it, until it reaches {@link #MAX_NAMES} entries. Other string values, like custom names
+ * and sign text, are decoded without touching the table. The name read buffer is also reused per thread.
+ */
+public class InterningNbtReader {
+
+    private static final String[] KNOWN_NAMES = {
+            "", "DataVersion", "Level", "v", "x", "y", "z", "xPos", "yPos", "zPos", "LastUpdate", "TerrainPopulated",
+            "LightPopulated", "InhabitedTime", "Biomes", "HeightMap", "Sections", "Y", "Blocks", "Data", "Add", "Add2",
+            "BlockLight", "SkyLight", "Entities", "TileEntities", "TileTicks", "populated", "fullyPopulated",
+            "initLightDone", "isSurfaceTracked", "LightingInfo", "LastHeightMap", "OpacityIndex", "i", "p", "t",
+            // entities
+            "id", "Pos", "Motion", "Rotation", "FallDistance", "Fire", "Air", "OnGround", "Dimension", "Invulnerable",
+            "PortalCooldown", "UUIDMost", "UUIDLeast", "UUID", "CustomName", "CustomNameVisible", "Silent", "NoGravity",
+            "Glowing", "Tags", "Passengers", "Health", "AbsorptionAmount", "HurtTime", "HurtByTimestamp", "DeathTime",
+            "FallFlying", "Attributes", "Name", "Base", "Modifiers", "Amount", "Operation", "ActiveEffects",
+            "HandItems", "ArmorItems", "HandDropChances", "ArmorDropChances", "CanPickUpLoot", "PersistenceRequired",
+            "Leashed", "LeftHanded", "Age", "ForcedAge", "InLove", "Item", "PickupDelay", "Owner", "Thrower",
+            "Facing", "TileX", "TileY", "TileZ", "Motive", "ItemRotation", "ItemDropChance", "Color", "Sheared",
+            "Saddle", "Variant", "Type", "Size", "wasOnGround",
+            // items and tile entities
+            "Items", "Slot", "Count", "Damage", "tag", "display", "Lore", "ench", "lvl", "Lock", "LootTable",
+            "LootTableSeed", "BurnTime", "CookTime", "CookTimeTotal", "Text1", "Text2", "Text3", "Text4",
+            "SpawnData", "SpawnPotentials", "Weight", "Entity", "Delay", "MinSpawnDelay", "MaxSpawnDelay",
+            "SpawnCount", "MaxNearbyEntities", "RequiredPlayerRange", "SpawnRange", "Levels", "Primary", "Secondary",
+            "SkullType", "Rot", "Patterns", "Pattern", "Command", "SuccessCount", "TrackOutput", "powered", "auto",
+            "conditionMet", "TransferCooldown", "note", "Record", "RecordItem", "OutputSignal", "Brewtime",
+            "Fuel", "blockId", "blockData", "facing", "progress", "extending", "source", "ExitPortal", "ExactTeleport",
+            "Properties", "Palette", "BlockStates", "Status"
+    };
+
+    private static final int MAX_NAMES = 4096;
+    private static final int MAX_INTERNED_STRING_LENGTH = 64;
+
+    private static final ThreadLocal<InterningNbtReader> READERS = ThreadLocal.withInitial(InterningNbtReader::new);
+
+    private byte[][] keys;
+    private String[] values;
+    private int size;
+
+    private byte[] nameBuffer = new byte[256];
+
+    private InterningNbtReader() {
+        keys = new byte[MAX_NAMES * 2][];
+        values = new String[MAX_NAMES * 2];
+        for (String name : KNOWN_NAMES) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            intern(bytes, bytes.length, name);
+        }
+    }
+
+    /**
+     * Reads an uncompressed named root compound tag
+     */
+    public static CompoundTag readCompound(InputStream in) throws IOException {
+        DataInputStream data = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+        InterningNbtReader reader = READERS.get();
+        int type = data.readUnsignedByte();
+        if (type != TagType.TAG_COMPOUND.getId()) {
+            throw new IOException("Root tag must be a compound tag, but got tag type " + type);
+        }
+        String name = reader.readName(data);
+        return new CompoundTag(name, reader.readCompoundPayload(data));
+    }
+
+    private CompoundMap readCompoundPayload(DataInputStream in) throws IOException {
+        CompoundMap map = new CompoundMap();
+        while (true) {
+            int type = in.readUnsignedByte();
+            if (type == 0) {
+                return map;
+            }
+            String name = readName(in);
+            map.put(readPayload(in, type, name));
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Tag<?> readPayload(DataInputStream in, int type, String name) throws IOException {
+        switch (type) {
+            case 1:
+                return new ByteTag(name, in.readByte());
+            case 2:
+                return new ShortTag(name, in.readShort());
+            case 3:
+                return new IntTag(name, in.readInt());
+            case 4:
+                return new LongTag(name, in.readLong());
+            case 5:
+                return new FloatTag(name, in.readFloat());
+            case 6:
+                return new DoubleTag(name, in.readDouble());
+            case 7: {
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                return new ByteArrayTag(name, value);
+            }
+            case 8:
+                return new StringTag(name, readString(in));
+            case 9: {
+                int elementType = in.readUnsignedByte();
+                int length = in.readInt();
+                Class<? extends Tag> elementClass = TagType.getById(elementType).getTagClass();
+                List<Tag<?>> elements = new ArrayList<>(Math.max(length, 0));
+                for (int i = 0; i < length; i++) {
+                    elements.add(readPayload(in, elementType, ""));
+                }
+                return new ListTag(name, elementClass, elements);
+            }
+            case 10:
+                return new CompoundTag(name, readCompoundPayload(in));
+            case 11: {
+                int[] value = new int[in.readInt()];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = in.readInt();
+                }
+                return new IntArrayTag(name, value);
+            }
+            case 100: {
+                short[] value = new short[in.readInt()];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = in.readShort();
+                }
+                return new ShortArrayTag(name, value);
+            }
+            case 0:
+                return new EndTag();
+            default:
+                throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private String readName(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        byte[] buf = readToBuffer(in, length);
+        String name = lookup(buf, length);
+        return name != null ? name : intern(Arrays.copyOf(buf, length), length, decode(buf, length));
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        byte[] buf = readToBuffer(in, length);
+        if (length > MAX_INTERNED_STRING_LENGTH || !isNamespacedId(buf, length)) {
+            return decode(buf, length);
+        }
+        String value = lookup(buf, length);
+        return value != null ? value : intern(Arrays.copyOf(buf, length), length, decode(buf, length));
+    }
+
+    /**
+     * Ids like {@code minecraft:chest} come from a small set, so they are worth interning, unlike free text.
+     */
+    private static boolean isNamespacedId(byte[] buf, int length) {
+        int colon = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = buf[i];
+            if (b == ':') {
+                if (colon >= 0) {
+                    return false;
+                }
+                colon = i;
+            } else if (!(b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b == '_' || b == '-' || b == '.' || b == '/')) {
+                return false;
+            }
+        }
+        return colon > 0 && colon < length - 1;
+    }
+
+    private byte[] readToBuffer(DataInputStream in, int length) throws IOException {
+        if (nameBuffer.length < length) {
+            nameBuffer = new byte[Integer.highestOneBit(length) << 1];
+        }
+        in.readFully(nameBuffer, 0, length);
+        return nameBuffer;
+    }
+
+    private String lookup(byte[] buf, int length) {
+        int mask = keys.length - 1;
+        for (int i = hash(buf, length) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (equals(keys[i], buf, length)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    private String intern(byte[] key, int length, String value) {
+        if (size >= MAX_NAMES) {
+            return value;
+        }
+        int mask = keys.length - 1;
+        int i = hash(key, length) & mask;
+        while (keys[i] != null) {
+            if (equals(keys[i], key, length)) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return value;
+    }
+
+    private static int hash(byte[] buf, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] key, byte[] buf, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buf[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(byte[] buf, int length) throws IOException {
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            if (buf[i] <= 0) { // non-ASCII, or the modified UTF-8 encoding of NUL
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) buf[i];
+            }
+            return new String(chars);
+        }
+        byte[] withLength = new byte[length + 2];
+        withLength[0] = (byte) (length >>> 8);
+        withLength[1] = (byte) length;
+        System.arraycopy(buf, 0, withLength, 2, length);
+        return new DataInputStream(new ByteArrayInputStream(withLength)).readUTF();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bulk operations on nibble arrays, as used for block metadata, light and the Add arrays of cube sections. Nibble
+ * {@code i} is the low half of byte {@code i >> 1} when {@code i} is even and the high half when it's odd.
+ * <p>
+ * The bulk operations work on whole bytes, two nibbles at a time, so the loops have no branch on index parity and
+ * runs of whole bytes go through {@link Arrays#fill} and simple loops the JIT can vectorize.
+ */
+public class NibbleArrays {
+
+    public static int get(byte[] arr, int index) {
+        int i = index >> 1;
+        return (index & 1) == 0 ? arr[i] & 0xf : arr[i] >> 4 & 0xf;
+    }
+
+    public static void set(byte[] arr, int index, int value) {
+        int i = index >> 1;
+        if ((index & 1) == 0) {
+            arr[i] = (byte) (arr[i] & 0xf0 | value & 0xf);
+        } else {
+            arr[i] = (byte) (arr[i] & 0xf | (value & 0xf) << 4);
+        }
+    }
+
+    /**
+     * Sets nibbles {@code from} (inclusive) to {@code to} (exclusive) to {@code value}.
+     */
+    public static void fill(byte[] arr, int from, int to, int value) {
+        if (from >= to) {
+            return;
+        }
+        if ((from & 1) != 0) {
+            set(arr, from++, value);
+        }
+        if ((to & 1) != 0) {
+            set(arr, --to, value);
+        }
+        value &= 0xf;
+        Arrays.fill(arr, from >> 1, to >> 1, (byte) (value | value << 4));
+    }
+
+    /**
+     * @return whether every nibble of the array is {@code value}
+     */
+    public static boolean isUniform(byte[] arr, int value) {
+        value &= 0xf;
+        int pair = value | value << 4;
+        // no early exit, so the loop is a plain reduction
+        int diff = 0;
+        for (byte b : arr) {
+            diff |= (b & 0xff) ^ pair;
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Packs {@code length} values from {@code src}, one per byte, into nibbles starting at {@code dstIndex}.
+     * Only the low 4 bits of each value are used.
+     */
+    public static void pack(byte[] src, int srcIndex, byte[] dst, int dstIndex, int length) {
+        int end = srcIndex + length;
+        if ((dstIndex & 1) != 0 && srcIndex < end) {
+            set(dst, dstIndex++, src[srcIndex++]);
+        }
+        int j = dstIndex >> 1;
+        for (; srcIndex + 1 < end; srcIndex += 2, j++) {
+            dst[j] = (byte) (src[srcIndex] & 0xf | src[srcIndex + 1] << 4);
+        }
+        if (srcIndex < end) {
+            set(dst, j << 1, src[srcIndex]);
+        }
+    }
+
+    /**
+     * Replaces every block of a section through a lookup table indexed and valued by {@code id << 4 | meta}.
+     *
+     * @param blocks the low 8 bits of block ids, one byte per block
+     * @param meta block metadata nibbles
+     * @param add bits 8-11 of block ids, or null. When null, the table must only map to ids below 256.
+     * @param table the lookup table. It must cover 12 bit ids when {@code add} is not null, and 8 bit ids otherwise.
+     */
+    public static void applyTable(byte[] blocks, byte[] meta, @Nullable byte[] add, char[] table) {
+        if (add == null) {
+            for (int j = 0, i = 0; j < meta.length; j++, i += 2) {
+                int m = meta[j];
+                int out0 = table[(blocks[i] & 0xff) << 4 | m & 0xf];
+                int out1 = table[(blocks[i + 1] & 0xff) << 4 | m >> 4 & 0xf];
+                blocks[i] = (byte) (out0 >> 4);
+                blocks[i + 1] = (byte) (out1 >> 4);
+                meta[j] = (byte) (out0 & 0xf | out1 << 4);
+            }
+            return;
+        }
+        for (int j = 0, i = 0; j < meta.length; j++, i += 2) {
+            int m = meta[j];
+            int a = add[j];
+            int out0 = table[(a & 0xf) << 12 | (blocks[i] & 0xff) << 4 | m & 0xf];
+            int out1 = table[(a >> 4 & 0xf) << 12 | (blocks[i + 1] & 0xff) << 4 | m >> 4 & 0xf];
+            blocks[i] = (byte) (out0 >> 4);
+            blocks[i + 1] = (byte) (out1 >> 4);
+            meta[j] = (byte) (out0 & 0xf | out1 << 4);
+            add[j] = (byte) (out0 >> 12 | out1 >> 12 << 4);
+        }
+    }
+}
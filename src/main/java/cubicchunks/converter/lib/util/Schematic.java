@@ -23,23 +23,46 @@
  */
 package cubicchunks.converter.lib.util;
 
-import net.kyori.nbt.CompoundTag;
-import net.kyori.nbt.TagIO;
-import net.kyori.nbt.TagTypeMaps;
-
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
 
 public class Schematic {
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+
     // zSize = Length
     // xSize = Width
     private final int xSize, ySize, zSize;
     private final int xzFactor;
-    private final byte[] blocks;
-    private final byte[] add;
-    private final byte[] data;
+    private final ByteBuffer blocks;
+    private final ByteBuffer add;
+    private final ByteBuffer data;
 
     public Schematic(int xSize, int ySize, int zSize, byte[] blocks, byte[] add, byte[] data) {
+        this(xSize, ySize, zSize, ByteBuffer.wrap(blocks), ByteBuffer.wrap(add), ByteBuffer.wrap(data));
+    }
+
+    private Schematic(int xSize, int ySize, int zSize, ByteBuffer blocks, ByteBuffer add, ByteBuffer data) {
         this.xSize = xSize;
         this.ySize = ySize;
         this.zSize = zSize;
@@ -49,19 +72,163 @@ public class Schematic {
         this.data = data;
     }
 
-    // TODO: entities, tile entities, tile ticks, biomes, id mappings, extended metadata, WorldEdit offset and origin
-    // TODO: more efficient loading
+    /**
+     * Loads a schematic like {@link #load(Path, Path)}, with the temporary file next to the schematic. The default
+     * temporary directory is often in memory, which would defeat keeping the arrays off the heap.
+     */
     public static Schematic load(Path path) throws IOException {
-        CompoundTag root = TagIO.readCompressedPath(TagTypeMaps.MINECRAFT, path);
+        return load(path, path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Loads a schematic without keeping its block arrays on the heap. The file is decompressed once while it's parsed,
+     * the Blocks, Data and AddBlocks arrays are written to a temporary file in {@code tmpDir} and the schematic reads
+     * them through read-only memory mappings. Everything else is skipped. The mappings are never modified, so one
+     * schematic can be shared by any number of tasks and threads.
+     */
+    // TODO: entities, tile entities, tile ticks, biomes, id mappings, extended metadata, WorldEdit offset and origin
+    public static Schematic load(Path path, Path tmpDir) throws IOException {
+        Path tmp = Files.createTempFile(tmpDir, "." + path.getFileName(), ".tmp");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path)), 1 << 16));
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (in.readUnsignedByte() != TAG_COMPOUND) {
+                throw new IOException("Root tag of " + path + " is not a compound");
+            }
+            in.readUTF();
 
-        if (root.contains("Add")) {
-            throw new UnsupportedOperationException("Legacy Add tag not implemented");
+            int width = -1, height = -1, length = -1;
+            long[] blocks = null, add = null, data = null;
+            byte[] buffer = new byte[1 << 16];
+            int type;
+            while ((type = in.readUnsignedByte()) != TAG_END) {
+                String name = in.readUTF();
+                if (name.equals("Add")) {
+                    throw new UnsupportedOperationException("Legacy Add tag not implemented");
+                }
+                if (name.equals("SchematicaMapping") || name.equals("BlockIDs")) {
+                    throw new UnsupportedOperationException("ID mappings not implemented");
+                }
+                if (type == TAG_SHORT && name.equals("Width")) {
+                    width = in.readUnsignedShort();
+                } else if (type == TAG_SHORT && name.equals("Height")) {
+                    height = in.readUnsignedShort();
+                } else if (type == TAG_SHORT && name.equals("Length")) {
+                    length = in.readUnsignedShort();
+                } else if (type == TAG_BYTE_ARRAY && name.equals("Blocks")) {
+                    blocks = copyByteArray(in, out, buffer);
+                } else if (type == TAG_BYTE_ARRAY && name.equals("Data")) {
+                    data = copyByteArray(in, out, buffer);
+                } else if (type == TAG_BYTE_ARRAY && name.equals("AddBlocks")) {
+                    add = copyByteArray(in, out, buffer);
+                } else {
+                    skipPayload(in, type);
+                }
+            }
+            if (width < 0 || height < 0 || length < 0 || blocks == null || data == null) {
+                throw new IOException("Schematic " + path + " is missing Width, Height, Length, Blocks or Data");
+            }
+            return new Schematic(width, height, length, map(out, blocks), map(out, add), map(out, data));
+        } finally {
+            try {
+                // the mappings stay valid after the file is deleted on systems that allow it
+                Files.delete(tmp);
+            } catch (IOException e) {
+                tmp.toFile().deleteOnExit();
+            }
         }
-        if (root.contains("SchematicaMapping") || root.contains("BlockIDs")) {
-            throw new UnsupportedOperationException("ID mappings not implemented");
+    }
+
+    /**
+     * Appends the payload of a byte array tag to {@code out}.
+     *
+     * @return position and length of the array in {@code out}
+     */
+    private static long[] copyByteArray(DataInputStream in, FileChannel out, byte[] buffer) throws IOException {
+        int size = in.readInt();
+        long position = out.position();
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        int remaining = size;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, Math.min(remaining, buffer.length));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            wrapped.clear().limit(n);
+            while (wrapped.hasRemaining()) {
+                out.write(wrapped);
+            }
+            remaining -= n;
+        }
+        return new long[]{position, size};
+    }
+
+    private static ByteBuffer map(FileChannel channel, long[] array) throws IOException {
+        if (array == null || array[1] == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, array[0], array[1]);
+    }
+
+    private static void skipPayload(DataInputStream in, int type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                skipFully(in, 1);
+                break;
+            case TAG_SHORT:
+                skipFully(in, 2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skipFully(in, 4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skipFully(in, 8);
+                break;
+            case TAG_BYTE_ARRAY:
+                skipFully(in, in.readInt());
+                break;
+            case TAG_STRING:
+                skipFully(in, in.readUnsignedShort());
+                break;
+            case TAG_LIST: {
+                int elementType = in.readUnsignedByte();
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    skipPayload(in, elementType);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                int elementType;
+                while ((elementType = in.readUnsignedByte()) != TAG_END) {
+                    skipFully(in, in.readUnsignedShort());
+                    skipPayload(in, elementType);
+                }
+                break;
+            }
+            case TAG_INT_ARRAY:
+                skipFully(in, in.readInt() * 4L);
+                break;
+            case TAG_LONG_ARRAY:
+                skipFully(in, in.readInt() * 8L);
+                break;
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            n -= skipped;
         }
-        return new Schematic(root.getInt("Width"), root.getInt("Height"), root.getInt("Length"),
-                root.getByteArray("Blocks"), root.getByteArray("AddBlocks"), root.getByteArray("Data"));
     }
 
     public int index(int x, int y, int z) {
@@ -69,17 +236,51 @@ public class Schematic {
     }
 
     public int id(int index) {
-        return blocks[index] & 0xFF;
+        return blocks.get(index) & 0xFF;
     }
 
     public int idMSB(int index) {
         int i = index >> 1;
         int shift = (index & 1 ^ 1) << 2;
-        return (add[i] >>> shift) & 0xF;
+        return (add.get(i) >>> shift) & 0xF;
     }
 
     public int meta(int index) {
-        return data[index] & 0xFF;
+        return data.get(index) & 0xFF;
+    }
+
+    /**
+     * Copies the low 8 bits of block ids of {@code length} consecutive blocks along the x axis.
+     */
+    public void copyIds(int index, byte[] out, int outIndex, int length) {
+        if (blocks.hasArray()) {
+            System.arraycopy(blocks.array(), blocks.arrayOffset() + index, out, outIndex, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            out[outIndex + i] = blocks.get(index + i);
+        }
+    }
+
+    /**
+     * Packs the metadata of {@code length} consecutive blocks along the x axis into a nibble array.
+     */
+    public void copyMeta(int index, byte[] out, int outIndex, int length) {
+        if (data.hasArray()) {
+            NibbleArrays.pack(data.array(), data.arrayOffset() + index, out, outIndex, length);
+            return;
+        }
+        int end = index + length;
+        if ((outIndex & 1) != 0 && index < end) {
+            NibbleArrays.set(out, outIndex++, data.get(index++));
+        }
+        int j = outIndex >> 1;
+        for (; index + 1 < end; index += 2, j++) {
+            out[j] = (byte) (data.get(index) & 0xf | data.get(index + 1) << 4);
+        }
+        if (index < end) {
+            NibbleArrays.set(out, j << 1, data.get(index));
+        }
     }
 
     public int getXSize() {
@@ -30,7 +30,6 @@ import com.flowpowered.nbt.CompoundTag;
 import com.flowpowered.nbt.IntArrayTag;
 import com.flowpowered.nbt.IntTag;
 import com.flowpowered.nbt.ListTag;
-import com.flowpowered.nbt.stream.NBTInputStream;
 import com.flowpowered.nbt.stream.NBTOutputStream;
 import cubicchunks.regionlib.impl.EntryLocation3D;
 import cubicchunks.regionlib.util.CheckedConsumer;
@@ -39,6 +38,7 @@ import cubicchunks.regionlib.util.CheckedFunction;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
@@ -222,12 +222,12 @@ public class Utils {
             throw new UnsupportedOperationException();
         }
 
-        return (CompoundTag) new NBTInputStream(data, false).readTag();
+        return InterningNbtReader.readCompound(new DataInputStream(data));
     }
 
     public static CompoundTag readCompressedCC(InputStream is) throws IOException {
-        try (NBTInputStream nbtInputStream = new NBTInputStream(new BufferedInputStream(new GZIPInputStream(is)), false)) {
-            return (CompoundTag) nbtInputStream.readTag();
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(is)))) {
+            return InterningNbtReader.readCompound(data);
         }
     }
 
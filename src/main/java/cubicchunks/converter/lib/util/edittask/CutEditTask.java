@@ -57,6 +57,13 @@ public class CutEditTask extends TranslationEditTask {
         offset = dstOffset;
     }
 
+    /**
+     * @return the offset the cut blocks are moved by, or null if they are only cleared
+     */
+    public Vector3i getOffset() {
+        return offset;
+    }
+
     @Nonnull @Override public List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> actOnCube(Vector3i cubePos, EditTaskContext.EditTaskConfig config, CompoundTag cubeTag, long inCubePriority) {
         List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> outCubes = new ArrayList<>();
 
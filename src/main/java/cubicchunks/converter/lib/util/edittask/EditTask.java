@@ -28,6 +28,7 @@ import com.flowpowered.nbt.CompoundTag;
 import cubicchunks.converter.lib.conf.command.EditTaskContext;
 import cubicchunks.converter.lib.util.BoundingBox;
 import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.NibbleArrays;
 import cubicchunks.converter.lib.util.Vector3i;
 
 import javax.annotation.Nonnull;
@@ -109,19 +110,11 @@ public interface EditTask {
 
     static int nibbleGetAtIndex(byte[] arr, int index)
     {
-        int i = index >> 1;
-        return (index & 1) == 0 ? arr[i] & 0xf : arr[i] >> 4 & 0xf;
+        return NibbleArrays.get(arr, index);
     }
 
     static void nibbleSetAtIndex(byte[] arr, int index, int value)
     {
-        int i = index >> 1;
-
-        if ((index & 1) == 0) {
-            arr[i] = (byte)(arr[i] & 0xf0 | value & 0xf);
-        }
-        else {
-            arr[i] = (byte)(arr[i] & 0xf | (value & 0xf) << 4);
-        }
+        NibbleArrays.set(arr, index, value);
     }
 }
@@ -0,0 +1,131 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.BoxIndex;
+import cubicchunks.converter.lib.util.Vector3i;
+
+import java.util.List;
+
+/**
+ * Answers which {@link EditTask}s of a dimension touch a given cube or region, without testing every box of every task.
+ * Built once from the task list, then safe to query from many threads.
+ */
+public class EditTaskIndex {
+
+    // 3d regions are 16x16x16 cubes
+    private static final Vector3i REGION_SIZE = new Vector3i(16, 16, 16);
+    private static final int CUBE_CELL_BITS = 4;
+    private static final int REGION_CELL_BITS = 2;
+
+    private final List<EditTask> tasks;
+    private final boolean hasTasks;
+    private final BoxIndex srcBoxes = new BoxIndex(CUBE_CELL_BITS);
+    private final BoxIndex regionBoxes = new BoxIndex(REGION_CELL_BITS);
+    private final BoxIndex modifiedRegionBoxes = new BoxIndex(REGION_CELL_BITS);
+    private final EditTaskContext.EditTaskConfig[] configs;
+
+    /**
+     * @param tasks all the edit tasks, in script order
+     * @param dimension the dimension directory name. Only tasks handling this dimension are indexed.
+     */
+    public EditTaskIndex(List<EditTask> tasks, String dimension) {
+        this.tasks = tasks;
+        this.configs = new EditTaskContext.EditTaskConfig[tasks.size()];
+
+        boolean hasTasks = false;
+        EditTaskContext.EditTaskConfig config = new EditTaskContext.EditTaskConfig();
+        for (int i = 0; i < tasks.size(); i++) {
+            EditTask task = tasks.get(i);
+            if (!task.handlesDimension(dimension)) {
+                continue;
+            }
+            hasTasks = true;
+            // config tasks change the config of all the tasks after them
+            task.initialise(config);
+            configs[i] = new EditTaskContext.EditTaskConfig(config);
+            boolean modifiesSrc = task.readsCubeData() || task.createSrcCubesIfMissing();
+            for (BoundingBox box : task.getSrcBoxes()) {
+                srcBoxes.add(box, i);
+                BoundingBox regionBox = box.asRegionCoords(REGION_SIZE);
+                regionBoxes.add(regionBox, i);
+                if (modifiesSrc) {
+                    modifiedRegionBoxes.add(regionBox, i);
+                }
+            }
+            for (BoundingBox box : task.getDstBoxes()) {
+                BoundingBox regionBox = box.asRegionCoords(REGION_SIZE);
+                regionBoxes.add(regionBox, i);
+                modifiedRegionBoxes.add(regionBox, i);
+            }
+        }
+        this.hasTasks = hasTasks;
+    }
+
+    public EditTask getTask(int taskId) {
+        return tasks.get(taskId);
+    }
+
+    /**
+     * @return the config as seen by the given task, after all the config tasks before it
+     */
+    public EditTaskContext.EditTaskConfig getConfig(int taskId) {
+        return configs[taskId];
+    }
+
+    /**
+     * @return whether any task handles this dimension
+     */
+    public boolean hasTasks() {
+        return hasTasks;
+    }
+
+    /**
+     * @return ids of the tasks with a source box containing the cube, in script order
+     */
+    public int[] srcTasksAt(int cubeX, int cubeY, int cubeZ) {
+        return srcBoxes.valuesAt(cubeX, cubeY, cubeZ);
+    }
+
+    public boolean isAnySrc(int cubeX, int cubeY, int cubeZ) {
+        return srcBoxes.containsAny(cubeX, cubeY, cubeZ);
+    }
+
+    /**
+     * @return whether any source or destination box of any task intersects the 3d region at the given region coordinates
+     */
+    public boolean touchesRegion(int regionX, int regionY, int regionZ) {
+        return regionBoxes.containsAny(regionX, regionY, regionZ);
+    }
+
+    /**
+     * @return whether any task may change the contents of the 3d region at the given region coordinates. A region that
+     * is touched only by tasks that don't read cube data, like keep, ends up exactly the same in the output.
+     */
+    public boolean modifiesRegion(int regionX, int regionY, int regionZ) {
+        return modifiedRegionBoxes.containsAny(regionX, regionY, regionZ);
+    }
+}
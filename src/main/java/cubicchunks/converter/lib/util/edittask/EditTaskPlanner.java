@@ -0,0 +1,391 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.BoxIndex;
+import cubicchunks.converter.lib.util.Vector3i;
+import cubicchunks.regionlib.api.region.key.RegionKey;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Simplifies a parsed edit script before converting, and estimates how much of the world each task touches.
+ * <p>
+ * The optimizations rely on how the relocating converter applies tasks: each task with a source box containing a cube
+ * gets the same cube tag, in script order, and in-place tasks modify that tag.
+ */
+public class EditTaskPlanner {
+
+    private static final Logger LOGGER = Logger.getLogger(EditTaskPlanner.class.getSimpleName());
+
+    // 3d regions are 16x16x16 cubes
+    private static final Vector3i REGION_SIZE = new Vector3i(16, 16, 16);
+    private static final int REGION_KEY_COUNT = 16 * 16 * 16;
+    // box merging and overwrite checks are quadratic, so tasks with more boxes than this (usually from box lists) are left as they are
+    private static final int MAX_OPTIMIZED_BOXES = 1024;
+    private static final long MAX_MERGE_CHECKS = 4L * MAX_OPTIMIZED_BOXES * MAX_OPTIMIZED_BOXES;
+
+    /**
+     * Returns an equivalent, usually shorter, list of tasks:
+     * <ul>
+     *     <li>set, replace and remove tasks whose whole area is later removed (or cut without offset) are dropped</li>
+     *     <li>consecutive replace tasks on the same box become one task applying all the rules in one pass</li>
+     *     <li>consecutive remove, keep, set and replace tasks doing the same thing are merged into one task,
+     *     and their boxes are merged where the union is still a box</li>
+     * </ul>
+     */
+    public static List<EditTask> optimize(List<EditTask> tasks) {
+        List<EditTask> optimized = dropOverwrittenTasks(tasks);
+        optimized = collapseReplaceTasks(optimized);
+        optimized = mergeConsecutiveTasks(optimized);
+        if (optimized.size() != tasks.size()) {
+            LOGGER.info("Optimized edit script from " + tasks.size() + " to " + optimized.size() + " tasks");
+        }
+        return optimized;
+    }
+
+    private static List<EditTask> dropOverwrittenTasks(List<EditTask> tasks) {
+        EditTaskContext.EditTaskConfig[] configs = new EditTaskContext.EditTaskConfig[tasks.size()];
+        EditTaskContext.EditTaskConfig config = new EditTaskContext.EditTaskConfig();
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).initialise(config);
+            configs[i] = new EditTaskContext.EditTaskConfig(config);
+        }
+
+        List<EditTask> out = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!isOverwritten(tasks, configs, i)) {
+                out.add(tasks.get(i));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * A task is overwritten when every later task reading any of its cubes is a remove or an in-place cut, and each of its
+     * boxes is inside a box of one of those. Nothing can observe its changes then.
+     */
+    private static boolean isOverwritten(List<EditTask> tasks, EditTaskContext.EditTaskConfig[] configs, int taskId) {
+        EditTask task = tasks.get(taskId);
+        if (task.getSrcBoxes().size() > MAX_OPTIMIZED_BOXES) {
+            return false;
+        }
+        if (!(task instanceof SetEditTask) && !(task instanceof ReplaceEditTask) && !(task instanceof RemoveEditTask)) {
+            return false;
+        }
+        boolean marksLighting = !(task instanceof RemoveEditTask) && configs[taskId].shouldRelightDst();
+        List<BoundingBox> uncovered = new ArrayList<>(task.getSrcBoxes());
+        for (int i = taskId + 1; i < tasks.size(); i++) {
+            EditTask later = tasks.get(i);
+            if (!later.readsCubeData() || !intersectsAny(later.getSrcBoxes(), task.getSrcBoxes())) {
+                continue;
+            }
+            boolean clearsCubes = later instanceof RemoveEditTask || (later instanceof CutEditTask
+                    && ((CutEditTask) later).getOffset() == null
+                    // cut only redoes the lighting markers of the earlier task when it relights itself
+                    && (configs[i].shouldRelightSrc() || !marksLighting));
+            if (!clearsCubes) {
+                return false;
+            }
+            uncovered.removeIf(box -> later.getSrcBoxes().stream().anyMatch(other -> contains(other, box)));
+        }
+        return uncovered.isEmpty();
+    }
+
+    private static List<EditTask> collapseReplaceTasks(List<EditTask> tasks) {
+        List<EditTask> out = new ArrayList<>(tasks.size());
+        for (EditTask task : tasks) {
+            EditTask last = out.isEmpty() ? null : out.get(out.size() - 1);
+            if (last instanceof ReplaceEditTask && task instanceof ReplaceEditTask && last.getSrcBoxes().equals(task.getSrcBoxes())) {
+                out.set(out.size() - 1, ((ReplaceEditTask) last).andThen((ReplaceEditTask) task));
+            } else {
+                out.add(task);
+            }
+        }
+        return out;
+    }
+
+    private static List<EditTask> mergeConsecutiveTasks(List<EditTask> tasks) {
+        List<EditTask> out = new ArrayList<>(tasks.size());
+        Set<EditTask> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (EditTask task : tasks) {
+            EditTask last = out.isEmpty() ? null : out.get(out.size() - 1);
+            if (last != null && canMerge(last, task)) {
+                ((BaseEditTask) last).srcBoxes.addAll(task.getSrcBoxes());
+                ((BaseEditTask) last).dstBoxes.addAll(task.getDstBoxes());
+                merged.add(last);
+            } else {
+                out.add(task);
+            }
+        }
+        for (EditTask task : merged) {
+            mergeBoxes(((BaseEditTask) task).srcBoxes);
+            mergeBoxes(((BaseEditTask) task).dstBoxes);
+        }
+        return out;
+    }
+
+    /**
+     * Only tasks where applying them twice to a cube is the same as applying them once can be merged, as a cube in
+     * boxes of both tasks is then only processed once.
+     */
+    private static boolean canMerge(EditTask first, EditTask second) {
+        if (first.getClass() != second.getClass()) {
+            return false;
+        }
+        if (first instanceof RemoveEditTask) {
+            return true;
+        }
+        if (first instanceof KeepEditTask) {
+            return ((KeepEditTask) first).isColumn() == ((KeepEditTask) second).isColumn();
+        }
+        if (first instanceof SetEditTask) {
+            return ((SetEditTask) first).hasSameBlock((SetEditTask) second);
+        }
+        if (first instanceof ReplaceEditTask) {
+            // a single rule is idempotent, a list of rules may not be
+            return ((ReplaceEditTask) first).ruleCount() == 1 && ((ReplaceEditTask) first).hasSameRules((ReplaceEditTask) second);
+        }
+        return false;
+    }
+
+    /**
+     * Replaces pairs of boxes by their union while the union is exactly a box. Each pass over the boxes is quadratic,
+     * so the passes stop once {@link #MAX_MERGE_CHECKS} pairs were checked, leaving the rest unmerged.
+     */
+    static void mergeBoxes(List<BoundingBox> boxes) {
+        if (boxes.size() > MAX_OPTIMIZED_BOXES) {
+            return;
+        }
+        long checks = 0;
+        boolean changed = true;
+        while (changed && checks < MAX_MERGE_CHECKS) {
+            changed = false;
+            for (int i = 0; i < boxes.size() && checks < MAX_MERGE_CHECKS; i++) {
+                // keep growing box i within the pass instead of starting over after each merge
+                for (int j = i + 1; j < boxes.size(); j++) {
+                    checks++;
+                    BoundingBox union = exactUnion(boxes.get(i), boxes.get(j));
+                    if (union != null) {
+                        boxes.set(i, union);
+                        boxes.remove(j);
+                        j = i;
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static BoundingBox exactUnion(BoundingBox a, BoundingBox b) {
+        if (contains(a, b)) {
+            return a;
+        }
+        if (contains(b, a)) {
+            return b;
+        }
+        Vector3i aMin = a.getMinPos(), aMax = a.getMaxPos(), bMin = b.getMinPos(), bMax = b.getMaxPos();
+        boolean sameX = aMin.getX() == bMin.getX() && aMax.getX() == bMax.getX();
+        boolean sameY = aMin.getY() == bMin.getY() && aMax.getY() == bMax.getY();
+        boolean sameZ = aMin.getZ() == bMin.getZ() && aMax.getZ() == bMax.getZ();
+        boolean joinX = sameY && sameZ && touches(aMin.getX(), aMax.getX(), bMin.getX(), bMax.getX());
+        boolean joinY = sameX && sameZ && touches(aMin.getY(), aMax.getY(), bMin.getY(), bMax.getY());
+        boolean joinZ = sameX && sameY && touches(aMin.getZ(), aMax.getZ(), bMin.getZ(), bMax.getZ());
+        if (!joinX && !joinY && !joinZ) {
+            return null;
+        }
+        return new BoundingBox(
+                Math.min(aMin.getX(), bMin.getX()), Math.min(aMin.getY(), bMin.getY()), Math.min(aMin.getZ(), bMin.getZ()),
+                Math.max(aMax.getX(), bMax.getX()), Math.max(aMax.getY(), bMax.getY()), Math.max(aMax.getZ(), bMax.getZ()));
+    }
+
+    private static boolean touches(int aMin, int aMax, int bMin, int bMax) {
+        return (long) aMax + 1 >= bMin && (long) bMax + 1 >= aMin;
+    }
+
+    private static boolean contains(BoundingBox outer, BoundingBox inner) {
+        return outer.getMinPos().getX() <= inner.getMinPos().getX() && inner.getMaxPos().getX() <= outer.getMaxPos().getX()
+                && outer.getMinPos().getY() <= inner.getMinPos().getY() && inner.getMaxPos().getY() <= outer.getMaxPos().getY()
+                && outer.getMinPos().getZ() <= inner.getMinPos().getZ() && inner.getMaxPos().getZ() <= outer.getMaxPos().getZ();
+    }
+
+    private static boolean intersects(BoundingBox a, BoundingBox b) {
+        return a.getMinPos().getX() <= b.getMaxPos().getX() && b.getMinPos().getX() <= a.getMaxPos().getX()
+                && a.getMinPos().getY() <= b.getMaxPos().getY() && b.getMinPos().getY() <= a.getMaxPos().getY()
+                && a.getMinPos().getZ() <= b.getMaxPos().getZ() && b.getMinPos().getZ() <= a.getMaxPos().getZ();
+    }
+
+    private static boolean intersectsAny(List<BoundingBox> a, List<BoundingBox> b) {
+        for (BoundingBox boxA : a) {
+            for (BoundingBox boxB : b) {
+                if (intersects(boxA, boxB)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Logs, for each task handling the dimension, how many existing 3d regions its boxes touch and how many existing cubes
+     * its source boxes contain. Only region headers are read, each of them once.
+     *
+     * @param dimensionDir the dimension directory, containing region3d
+     * @param dimension the dimension directory name
+     */
+    public static void logCostEstimate(List<EditTask> tasks, Path dimensionDir, String dimension) throws IOException {
+        Path part3d = dimensionDir.resolve("region3d");
+        if (!Files.isDirectory(part3d)) {
+            return;
+        }
+        List<String> regionNames = new ArrayList<>();
+        Map<Vector3i, Integer> regionIds = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(part3d, "*.3dr")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                String[] split = name.split("\\.");
+                if (split.length != 4) {
+                    continue;
+                }
+                try {
+                    Vector3i pos = new Vector3i(Integer.parseInt(split[0]), Integer.parseInt(split[1]), Integer.parseInt(split[2]));
+                    regionIds.put(pos, regionNames.size());
+                    regionNames.add(name);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+
+        // find the regions each task touches first, so that each header is read once for all tasks
+        List<Integer> taskIds = new ArrayList<>();
+        List<BitSet> taskRegions = new ArrayList<>();
+        List<BoxIndex> taskSrcBoxes = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            EditTask task = tasks.get(i);
+            if (!task.handlesDimension(dimension) || (task.getSrcBoxes().isEmpty() && task.getDstBoxes().isEmpty())) {
+                continue;
+            }
+            BitSet regions = new BitSet(regionNames.size());
+            BoxIndex srcBoxes = new BoxIndex(4);
+            task.getSrcBoxes().forEach(box -> {
+                markRegions(box.asRegionCoords(REGION_SIZE), regionIds, regions);
+                srcBoxes.add(box, 0);
+            });
+            task.getDstBoxes().forEach(box -> markRegions(box.asRegionCoords(REGION_SIZE), regionIds, regions));
+            taskIds.add(i);
+            taskRegions.add(regions);
+            taskSrcBoxes.add(srcBoxes);
+        }
+
+        long[] cubeCounts = new long[taskIds.size()];
+        EntryLocation3D.Provider keyProvider = new EntryLocation3D.Provider();
+        int[] header = new int[REGION_KEY_COUNT];
+        ByteBuffer headerBuf = ByteBuffer.allocate(REGION_KEY_COUNT * Integer.BYTES);
+        for (int region = 0; region < regionNames.size(); region++) {
+            boolean headerRead = false;
+            RegionKey regionKey = null;
+            for (int t = 0; t < taskIds.size(); t++) {
+                if (!taskRegions.get(t).get(region)) {
+                    continue;
+                }
+                if (!headerRead) {
+                    readHeader(part3d.resolve(regionNames.get(region)), headerBuf, header);
+                    regionKey = new RegionKey(regionNames.get(region));
+                    headerRead = true;
+                }
+                BoxIndex srcBoxes = taskSrcBoxes.get(t);
+                for (int id = 0; id < header.length; id++) {
+                    if (header[id] == 0) {
+                        continue;
+                    }
+                    EntryLocation3D loc = keyProvider.fromRegionAndId(regionKey, id);
+                    if (srcBoxes.containsAny(loc.getEntryX(), loc.getEntryY(), loc.getEntryZ())) {
+                        cubeCounts[t]++;
+                    }
+                }
+            }
+        }
+
+        long totalCubes = 0;
+        for (int t = 0; t < taskIds.size(); t++) {
+            int i = taskIds.get(t);
+            totalCubes += cubeCounts[t];
+            LOGGER.info(String.format("Task %d (%s): %d regions, %d cubes", i, tasks.get(i).getClass().getSimpleName(),
+                    taskRegions.get(t).cardinality(), cubeCounts[t]));
+        }
+        LOGGER.info(String.format("Edit tasks in dimension \"%s\": %d cube reads in total", dimension, totalCubes));
+    }
+
+    /**
+     * Marks the existing regions inside the box, walking whichever is smaller: the box or the list of regions.
+     */
+    private static void markRegions(BoundingBox regionBox, Map<Vector3i, Integer> regionIds, BitSet out) {
+        Vector3i min = regionBox.getMinPos(), max = regionBox.getMaxPos();
+        long volume = ((long) max.getX() - min.getX() + 1) * ((long) max.getY() - min.getY() + 1) * ((long) max.getZ() - min.getZ() + 1);
+        if (volume > regionIds.size()) {
+            regionIds.forEach((pos, id) -> {
+                if (regionBox.intersects(pos.getX(), pos.getY(), pos.getZ())) {
+                    out.set(id);
+                }
+            });
+            return;
+        }
+        regionBox.forEach(pos -> {
+            Integer id = regionIds.get(pos);
+            if (id != null) {
+                out.set(id);
+            }
+        });
+    }
+
+    private static void readHeader(Path file, ByteBuffer buf, int[] header) throws IOException {
+        Arrays.fill(header, 0);
+        buf.clear();
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // read the whole header, or as much as there is
+            }
+        }
+        buf.flip();
+        buf.asIntBuffer().get(header, 0, buf.remaining() / Integer.BYTES);
+    }
+}
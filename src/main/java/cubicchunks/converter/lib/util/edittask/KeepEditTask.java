@@ -30,22 +30,31 @@ import cubicchunks.converter.lib.util.ImmutablePair;
 import cubicchunks.converter.lib.util.Vector3i;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class KeepEditTask extends BaseEditTask {
     private final boolean isColumn;
 
     public KeepEditTask(BoundingBox srcBox) {
-        this(srcBox, false);
+        this(Collections.singletonList(srcBox), false);
     }
 
-    private KeepEditTask(BoundingBox srcBox, boolean column) {
-        srcBoxes.add(srcBox);
+    private KeepEditTask(Collection<BoundingBox> srcBoxes, boolean column) {
+        this.srcBoxes.addAll(srcBoxes);
         isColumn = column;
     }
 
     public static KeepEditTask keepColumn(BoundingBox srcBox) {
-        return new KeepEditTask(srcBox, true);
+        return new KeepEditTask(Collections.singletonList(srcBox), true);
+    }
+
+    /**
+     * @return a single task keeping all the given boxes, the same as one keep task per box
+     */
+    public static KeepEditTask keepAll(Collection<BoundingBox> srcBoxes, boolean column) {
+        return new KeepEditTask(srcBoxes, column);
     }
 
     public boolean isColumn() {
@@ -0,0 +1,122 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import com.flowpowered.nbt.ByteArrayTag;
+import com.flowpowered.nbt.CompoundMap;
+import com.flowpowered.nbt.CompoundTag;
+import com.flowpowered.nbt.Tag;
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.NibbleArrays;
+import cubicchunks.converter.lib.util.Vector3i;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces blocks through a lookup table covering every 12 bit block id and metadata, in a single pass over each
+ * cube. Block ids use the Add nibbles for bits 8-11. Blocks with id bits above that, in NotEnoughIDs' Add2 nibbles,
+ * are not in the table and are left unchanged.
+ */
+public class RemapEditTask extends BaseEditTask {
+    // indexed and valued by id << 4 | meta
+    private final char[] table;
+
+    public RemapEditTask(BoundingBox srcBox, char[] table) {
+        srcBoxes.add(srcBox);
+        dstBoxes.add(srcBox);
+        this.table = table;
+    }
+
+    @Nonnull @Override public List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> actOnCube(Vector3i cubePos, EditTaskContext.EditTaskConfig config, CompoundTag cubeTag, long inCubePriority) {
+        List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> outCubes = new ArrayList<>();
+
+        CompoundMap level = (CompoundMap) cubeTag.getValue().get("Level").getValue();
+        if(config.shouldRelightDst()) {
+            this.markCubeForLightUpdates(level);
+        }
+        this.markCubePopulated(level);
+
+        CompoundMap sectionDetails;
+        try {
+            sectionDetails = ((CompoundTag)((List<?>) (level).get("Sections").getValue()).get(0)).getValue(); //POSSIBLE ARRAY OUT OF BOUNDS EXCEPTION ON A MALFORMED CUBE
+        } catch(NullPointerException | ArrayIndexOutOfBoundsException e) {
+            LOGGER.warning("Malformed cube at position (" + cubePos.getX() + ", " + cubePos.getY() + ", " + cubePos.getZ() + "), skipping!");
+            return outCubes;
+        }
+
+        byte[] blocks = (byte[]) sectionDetails.get("Blocks").getValue();
+        byte[] meta = (byte[]) sectionDetails.get("Data").getValue();
+        byte[] add = byteArray(sectionDetails, "Add");
+        byte[] add2 = byteArray(sectionDetails, "Add2");
+
+        if (add2 != null && !NibbleArrays.isUniform(add2, 0)) {
+            remapSkippingAdd2(sectionDetails, blocks, meta, add, add2);
+        } else if (add == null) {
+            add = new byte[2048];
+            NibbleArrays.applyTable(blocks, meta, add, table);
+            if (!NibbleArrays.isUniform(add, 0)) {
+                sectionDetails.put(new ByteArrayTag("Add", add));
+            }
+        } else {
+            NibbleArrays.applyTable(blocks, meta, add, table);
+        }
+
+        outCubes.add(new ImmutablePair<>(cubePos, new ImmutablePair<>(inCubePriority+1, cubeTag)));
+        return outCubes;
+    }
+
+    private void remapSkippingAdd2(CompoundMap sectionDetails, byte[] blocks, byte[] meta, byte[] add, byte[] add2) {
+        // blocks with Add2 bits have ids above the table, only the others can be remapped
+        for (int i = 0; i < 4096; i++) {
+            if (NibbleArrays.get(add2, i) != 0) {
+                continue;
+            }
+            int addBits = add == null ? 0 : NibbleArrays.get(add, i);
+            int key = addBits << 12 | (blocks[i] & 0xFF) << 4 | NibbleArrays.get(meta, i);
+            int out = table[key];
+            if (out == key) {
+                continue;
+            }
+            blocks[i] = (byte) (out >> 4);
+            NibbleArrays.set(meta, i, out);
+            int outAdd = out >> 12;
+            if (add == null && outAdd != 0) {
+                add = new byte[2048];
+                sectionDetails.put(new ByteArrayTag("Add", add));
+            }
+            if (add != null) {
+                NibbleArrays.set(add, i, outAdd);
+            }
+        }
+    }
+
+    private static byte[] byteArray(CompoundMap map, String name) {
+        Tag<?> tag = map.get(name);
+        return tag == null ? null : ((ByteArrayTag) tag).getValue();
+    }
+}
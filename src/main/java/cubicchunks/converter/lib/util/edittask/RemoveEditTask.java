@@ -31,6 +31,7 @@ import cubicchunks.converter.lib.util.Vector3i;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class RemoveEditTask extends BaseEditTask {
@@ -39,6 +40,14 @@ public class RemoveEditTask extends BaseEditTask {
         dstBoxes.add(srcBox);
     }
 
+    /**
+     * Creates a single task removing all the given boxes, the same as one remove task per box
+     */
+    public RemoveEditTask(Collection<BoundingBox> srcBoxes) {
+        this.srcBoxes.addAll(srcBoxes);
+        this.dstBoxes.addAll(srcBoxes);
+    }
+
     @Nonnull @Override public List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> actOnCube(Vector3i cubePos, EditTaskContext.EditTaskConfig config, CompoundTag cubeTag, long inCubePriority) {
         List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> cubes = new ArrayList<>(1);
         cubes.add(new ImmutablePair<>(cubePos, new ImmutablePair<>(inCubePriority+1, null)));
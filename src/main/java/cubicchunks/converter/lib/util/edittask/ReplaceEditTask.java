@@ -28,26 +28,83 @@ import com.flowpowered.nbt.CompoundTag;
 import cubicchunks.converter.lib.conf.command.EditTaskContext;
 import cubicchunks.converter.lib.util.BoundingBox;
 import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.NibbleArrays;
 import cubicchunks.converter.lib.util.Vector3i;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ReplaceEditTask extends BaseEditTask {
-    private final byte inBlockID;
-    private final byte inBlockMeta;
+    // replacement rules, applied in order. A meta of -1 matches any metadata
+    private final byte[] inBlockIDs;
+    private final byte[] inBlockMetas;
 
-    private final byte outBlockID;
-    private final byte outBlockMeta;
+    private final byte[] outBlockIDs;
+    private final byte[] outBlockMetas;
+    // all rules compiled into one lookup, indexed and valued by id << 4 | meta
+    private final char[] table;
 
     public ReplaceEditTask(BoundingBox srcBox, byte inBlockID, byte inBlockMeta, byte outBlockID, byte outBlockMeta) {
+        this(srcBox, new byte[]{inBlockID}, new byte[]{inBlockMeta}, new byte[]{outBlockID}, new byte[]{outBlockMeta});
+    }
+
+    private ReplaceEditTask(BoundingBox srcBox, byte[] inBlockIDs, byte[] inBlockMetas, byte[] outBlockIDs, byte[] outBlockMetas) {
         srcBoxes.add(srcBox);
         dstBoxes.add(srcBox);
-        this.inBlockID = inBlockID;
-        this.inBlockMeta = inBlockMeta;
-        this.outBlockID = outBlockID;
-        this.outBlockMeta = outBlockMeta;
+        this.inBlockIDs = inBlockIDs;
+        this.inBlockMetas = inBlockMetas;
+        this.outBlockIDs = outBlockIDs;
+        this.outBlockMetas = outBlockMetas;
+        this.table = compile();
+    }
+
+    private char[] compile() {
+        char[] table = new char[256 << 4];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (char) i;
+        }
+        for (int r = 0; r < inBlockIDs.length; r++) {
+            int inId = inBlockIDs[r] & 0xFF;
+            int inMeta = inBlockMetas[r];
+            char out = (char) ((outBlockIDs[r] & 0xFF) << 4 | outBlockMetas[r] & 0xF);
+            for (int i = 0; i < table.length; i++) {
+                int current = table[i];
+                if (current >> 4 == inId && (inMeta == -1 || (current & 0xF) == inMeta)) {
+                    table[i] = out;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return a task applying the rules of this task and then the rules of {@code next} in a single pass over each cube.
+     * Both tasks must have the same boxes.
+     */
+    ReplaceEditTask andThen(ReplaceEditTask next) {
+        ReplaceEditTask task = new ReplaceEditTask(srcBoxes.get(0),
+                concat(inBlockIDs, next.inBlockIDs), concat(inBlockMetas, next.inBlockMetas),
+                concat(outBlockIDs, next.outBlockIDs), concat(outBlockMetas, next.outBlockMetas));
+        task.srcBoxes.addAll(srcBoxes.subList(1, srcBoxes.size()));
+        task.dstBoxes.addAll(srcBoxes.subList(1, srcBoxes.size()));
+        return task;
+    }
+
+    boolean hasSameRules(ReplaceEditTask other) {
+        return Arrays.equals(inBlockIDs, other.inBlockIDs) && Arrays.equals(inBlockMetas, other.inBlockMetas)
+                && Arrays.equals(outBlockIDs, other.outBlockIDs) && Arrays.equals(outBlockMetas, other.outBlockMetas);
+    }
+
+    int ruleCount() {
+        return inBlockIDs.length;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
     }
 
     @Nonnull @Override public List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> actOnCube(Vector3i cubePos, EditTaskContext.EditTaskConfig config, CompoundTag cubeTag, long inCubePriority) {
@@ -70,21 +127,8 @@ public class ReplaceEditTask extends BaseEditTask {
         byte[] blocks = (byte[]) sectionDetails.get("Blocks").getValue();
         byte[] meta = (byte[]) sectionDetails.get("Data").getValue();
 
-        if(inBlockMeta == -1) { //-1 is a sentinel flag, meaning "any block metadata"
-            for (int i = 0; i < 4096; i++) {
-                if (blocks[i] == inBlockID) { //don't check metadata
-                    blocks[i] = outBlockID;
-                    EditTask.nibbleSetAtIndex(meta, i, outBlockMeta);
-                }
-            }
-        } else {
-            for (int i = 0; i < 4096; i++) {
-                if (blocks[i] == inBlockID && EditTask.nibbleGetAtIndex(meta, i) == inBlockMeta) { //check metadata
-                    blocks[i] = outBlockID;
-                    EditTask.nibbleSetAtIndex(meta, i, outBlockMeta);
-                }
-            }
-        }
+        // each position only depends on itself, so one table lookup per block is the same as one pass per rule
+        NibbleArrays.applyTable(blocks, meta, null, table);
 
         outCubes.add(new ImmutablePair<>(cubePos, new ImmutablePair<>(inCubePriority+1, cubeTag)));
         return outCubes;
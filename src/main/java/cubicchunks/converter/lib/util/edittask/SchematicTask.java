@@ -37,12 +37,24 @@ import javax.annotation.Nonnull;
 
 public class SchematicTask extends BaseEditTask {
 
+    private static final double INTEGER_EPSILON = 1e-9;
+
     private final Schematic schematic;
     private final Matrix4d transformInverse;
     private final List<BoundingBox> workingArea;
     private final boolean skipAir;
     private final String dimension;
 
+    // world block range the schematic can be pasted into, padded for rounding of the inverse transform
+    private final int minBlockX, minBlockY, minBlockZ;
+    private final int maxBlockX, maxBlockY, maxBlockZ;
+
+    // when the inverse transform only permutes and mirrors axes and translates by whole blocks (as the rotate, flip and
+    // offset options do), schematic axis k is axisSign[k] * world axis axisMap[k] + axisOffset[k]. Null otherwise
+    private final int[] axisMap;
+    private final int[] axisSign;
+    private final int[] axisOffset;
+
     public SchematicTask(Schematic schematic, Matrix4d transform, boolean skipAir, String dimension) {
         this.schematic = schematic;
         this.transformInverse = transform.inverse();
@@ -120,6 +132,55 @@ public class SchematicTask extends BaseEditTask {
                 p111.getZ()
         );
 
+        // a world block is pasted when its inverse transform rounds into the schematic, so it may be up to half a block
+        // outside the transformed schematic along each schematic axis
+        int marginX = (int) Math.ceil(0.5 * (Math.abs(transform.m00) + Math.abs(transform.m10) + Math.abs(transform.m20))) + 1;
+        int marginY = (int) Math.ceil(0.5 * (Math.abs(transform.m01) + Math.abs(transform.m11) + Math.abs(transform.m21))) + 1;
+        int marginZ = (int) Math.ceil(0.5 * (Math.abs(transform.m02) + Math.abs(transform.m12) + Math.abs(transform.m22))) + 1;
+        this.minBlockX = minX - marginX;
+        this.minBlockY = minY - marginY;
+        this.minBlockZ = minZ - marginZ;
+        this.maxBlockX = maxX + marginX;
+        this.maxBlockY = maxY + marginY;
+        this.maxBlockZ = maxZ + marginZ;
+
+        Matrix4d inv = this.transformInverse;
+        double[][] rows = {
+                {inv.m00, inv.m10, inv.m20, inv.m30},
+                {inv.m01, inv.m11, inv.m21, inv.m31},
+                {inv.m02, inv.m12, inv.m22, inv.m32}
+        };
+        int[] map = new int[3];
+        int[] sign = new int[3];
+        int[] offset = new int[3];
+        boolean axisAligned = true;
+        int usedAxes = 0;
+        for (int k = 0; k < 3 && axisAligned; k++) {
+            map[k] = -1;
+            for (int j = 0; j < 3; j++) {
+                double v = rows[k][j];
+                if (Math.abs(v) < INTEGER_EPSILON) {
+                    continue;
+                }
+                if (map[k] >= 0 || Math.abs(Math.abs(v) - 1) >= INTEGER_EPSILON) {
+                    axisAligned = false;
+                    break;
+                }
+                map[k] = j;
+                sign[k] = v > 0 ? 1 : -1;
+            }
+            double t = rows[k][3];
+            if (map[k] < 0 || (usedAxes & 1 << map[k]) != 0 || Math.abs(t - Math.rint(t)) >= INTEGER_EPSILON) {
+                axisAligned = false;
+                break;
+            }
+            usedAxes |= 1 << map[k];
+            offset[k] = (int) Math.rint(t);
+        }
+        this.axisMap = axisAligned ? map : null;
+        this.axisSign = axisAligned ? sign : null;
+        this.axisOffset = axisAligned ? offset : null;
+
         this.workingArea = Collections.singletonList(new BoundingBox(
             minX >> 4, minY >> 4, minZ >> 4,
             (maxX >> 4) + 1, (maxY >> 4) + 1, (maxZ >> 4) + 1
@@ -160,32 +221,104 @@ public class SchematicTask extends BaseEditTask {
         int baseY = cubePos.getY() * 16;
         int baseZ = cubePos.getZ() * 16;
 
-        for (int i = 0; i < 4096; i++) {
-            int x = baseX + (i & 15);
-            int y = baseY + (i >> 8 & 15);
-            int z = baseZ + (i >> 4 & 15);
+        if (axisMap != null) {
+            pasteAxisAligned(baseX, baseY, baseZ, blocks, meta);
+        } else {
+            pasteTransformed(baseX, baseY, baseZ, blocks, meta);
+        }
+
+        outCubes.add(new ImmutablePair<>(cubePos, new ImmutablePair<>(inCubePriority+1, cubeTag)));
+        return outCubes;
+    }
 
-            int schematicX = transformInverse.transformX(x, y, z);
-            int schematicY = transformInverse.transformY(x, y, z);
-            int schematicZ = transformInverse.transformZ(x, y, z);
+    /**
+     * Pastes the part of the schematic inside the cube when each world axis maps to one schematic axis. The intersection
+     * of the cube and the schematic is then a box, and every x row of it is a run of schematic blocks with a constant
+     * index step, copied directly when the step is 1.
+     */
+    void pasteAxisAligned(int baseX, int baseY, int baseZ, byte[] blocks, byte[] meta) {
+        int[] base = {baseX, baseY, baseZ};
+        int[] size = {schematic.getXSize(), schematic.getYSize(), schematic.getZSize()};
+        // index step of one block along schematic x, y, z
+        int[] schematicStride = {1, schematic.getXSize() * schematic.getZSize(), schematic.getXSize()};
 
-            if (schematicX < 0 || schematicX >= schematic.getXSize() ||
-                    schematicY < 0 || schematicY >= schematic.getYSize() ||
-                    schematicZ < 0 || schematicZ >= schematic.getZSize()) {
-                continue;
+        // cube local range and schematic index step along world x, y, z
+        int[] min = {0, 0, 0};
+        int[] max = {15, 15, 15};
+        int[] step = new int[3];
+        long startIdx = 0;
+        for (int k = 0; k < 3; k++) {
+            int j = axisMap[k];
+            // schematic coordinate of cube local 0 along world axis j
+            long start = (long) axisSign[k] * base[j] + axisOffset[k];
+            long lo, hi;
+            if (axisSign[k] > 0) {
+                lo = -start;
+                hi = size[k] - 1 - start;
+            } else {
+                lo = start - (size[k] - 1);
+                hi = start;
             }
-            int idx = schematic.index(schematicX, schematicY, schematicZ);
-            int id = schematic.id(idx);
-            if (skipAir && id == 0) {
-                continue;
+            min[j] = (int) Math.max(min[j], lo);
+            max[j] = (int) Math.min(max[j], hi);
+            if (min[j] > max[j]) {
+                return;
             }
-            blocks[i] = (byte) id;
-            EditTask.nibbleSetAtIndex(meta, i, schematic.meta(idx));
-            // TODO: id MSB
+            step[j] = axisSign[k] * schematicStride[k];
+            startIdx += start * schematicStride[k];
         }
 
-        outCubes.add(new ImmutablePair<>(cubePos, new ImmutablePair<>(inCubePriority+1, cubeTag)));
-        return outCubes;
+        int length = max[0] - min[0] + 1;
+        for (int y = min[1]; y <= max[1]; y++) {
+            for (int z = min[2]; z <= max[2]; z++) {
+                int i = y << 8 | z << 4 | min[0];
+                int idx = (int) (startIdx + (long) min[0] * step[0] + (long) y * step[1] + (long) z * step[2]);
+                if (step[0] == 1 && !skipAir) {
+                    schematic.copyIds(idx, blocks, i, length);
+                    schematic.copyMeta(idx, meta, i, length);
+                    continue;
+                }
+                for (int n = 0; n < length; n++, i++, idx += step[0]) {
+                    int id = schematic.id(idx);
+                    if (skipAir && id == 0) {
+                        continue;
+                    }
+                    blocks[i] = (byte) id;
+                    EditTask.nibbleSetAtIndex(meta, i, schematic.meta(idx));
+                }
+            }
+        }
+        // TODO: id MSB
+    }
+
+    void pasteTransformed(int baseX, int baseY, int baseZ, byte[] blocks, byte[] meta) {
+        int minX = Math.max(baseX, minBlockX), maxX = Math.min(baseX + 15, maxBlockX);
+        int minY = Math.max(baseY, minBlockY), maxY = Math.min(baseY + 15, maxBlockY);
+        int minZ = Math.max(baseZ, minBlockZ), maxZ = Math.min(baseZ + 15, maxBlockZ);
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int schematicX = transformInverse.transformX(x, y, z);
+                    int schematicY = transformInverse.transformY(x, y, z);
+                    int schematicZ = transformInverse.transformZ(x, y, z);
+
+                    if (schematicX < 0 || schematicX >= schematic.getXSize() ||
+                            schematicY < 0 || schematicY >= schematic.getYSize() ||
+                            schematicZ < 0 || schematicZ >= schematic.getZSize()) {
+                        continue;
+                    }
+                    int idx = schematic.index(schematicX, schematicY, schematicZ);
+                    int id = schematic.id(idx);
+                    if (skipAir && id == 0) {
+                        continue;
+                    }
+                    int i = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+                    blocks[i] = (byte) id;
+                    EditTask.nibbleSetAtIndex(meta, i, schematic.meta(idx));
+                    // TODO: id MSB
+                }
+            }
+        }
     }
 
     @Nonnull @Override public List<BoundingBox> getSrcBoxes() {
@@ -28,6 +28,7 @@ import com.flowpowered.nbt.CompoundTag;
 import cubicchunks.converter.lib.conf.command.EditTaskContext;
 import cubicchunks.converter.lib.util.BoundingBox;
 import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.NibbleArrays;
 import cubicchunks.converter.lib.util.Vector3i;
 
 import javax.annotation.Nonnull;
@@ -46,6 +47,10 @@ public class SetEditTask extends BaseEditTask {
         this.blockMeta = blockMeta;
     }
 
+    boolean hasSameBlock(SetEditTask other) {
+        return blockID == other.blockID && blockMeta == other.blockMeta;
+    }
+
     @Nonnull @Override public List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> actOnCube(Vector3i cubePos, EditTaskContext.EditTaskConfig config, CompoundTag cubeTag, long inCubePriority) {
         List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> outCubes = new ArrayList<>();
 
@@ -63,7 +68,7 @@ public class SetEditTask extends BaseEditTask {
             return outCubes;
         }
         Arrays.fill((byte[]) sectionDetails.get("Blocks").getValue(), blockID);
-        Arrays.fill((byte[]) sectionDetails.get("Data").getValue(), (byte) (blockMeta | blockMeta << 4));
+        NibbleArrays.fill((byte[]) sectionDetails.get("Data").getValue(), 0, 4096, blockMeta);
 
         outCubes.add(new ImmutablePair<>(cubePos, new ImmutablePair<>(inCubePriority+1, cubeTag)));
         return outCubes;
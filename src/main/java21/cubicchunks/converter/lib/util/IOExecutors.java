@@ -0,0 +1,123 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Java 21 version of IOExecutors, packaged in META-INF/versions/21 of the jar. Blocking region file reads run on
+ * virtual threads, so slow or network storage can be kept busy with many requests at once while conversion stays on
+ * the platform thread pool.
+ * <p>
+ * Writes are not done here and stay on the single platform write thread of each output in WorldConverter: region
+ * writes synchronize on the region, so more write threads would only wait for each other, and virtual threads waiting
+ * on a monitor pin their carrier thread.
+ * <p>
+ * Virtual threads can be turned off with the {@link #VIRTUAL_THREADS} config key. {@link #IO_DEPTH} sets how many
+ * reads of one conversion may be in flight at once.
+ */
+public final class IOExecutors {
+
+    // config key to turn off virtual threads. Defaults to the converter.virtualThreads system property, on if it's not set
+    public static final String VIRTUAL_THREADS = "virtualThreads";
+    // config key for how many reads of one conversion may be in flight at once. Defaults to the converter.ioDepth system
+    // property, 64 if it's not set
+    public static final String IO_DEPTH = "ioDepth";
+    private static final boolean DEFAULT_VIRTUAL_THREADS = !"false".equalsIgnoreCase(System.getProperty("converter.virtualThreads", "true"));
+    private static final int DEFAULT_IO_DEPTH = Integer.getInteger("converter.ioDepth", 64);
+
+    private final boolean virtualThreads;
+    private final int ioDepth;
+
+    private IOExecutors(boolean virtualThreads, int ioDepth) {
+        this.virtualThreads = virtualThreads;
+        this.ioDepth = ioDepth;
+    }
+
+    /**
+     * @param config the config of the conversion, or null for the defaults
+     */
+    public static IOExecutors fromConfig(@Nullable ConverterConfig config) {
+        if (config == null) {
+            return new IOExecutors(DEFAULT_VIRTUAL_THREADS, Math.max(1, DEFAULT_IO_DEPTH));
+        }
+        return new IOExecutors(config.getBool(VIRTUAL_THREADS, DEFAULT_VIRTUAL_THREADS), Math.max(1, config.getInt(IO_DEPTH, DEFAULT_IO_DEPTH)));
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public <T> void forEachBlocking(Collection<T> items, Consumer<? super T> action) {
+        if (!virtualThreads) {
+            items.parallelStream().forEach(action);
+            return;
+        }
+        Semaphore inFlight = new Semaphore(ioDepth);
+        List<Future<?>> tasks = new ArrayList<>(items.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                for (T item : items) {
+                    inFlight.acquire();
+                    tasks.add(executor.submit(() -> {
+                        try {
+                            action.accept(item);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException e) {
+                // the caller checks for interrupts to stop
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+}
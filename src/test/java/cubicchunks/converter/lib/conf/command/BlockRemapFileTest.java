@@ -0,0 +1,143 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.conf.command;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BlockRemapFileTest {
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test public void ruleWithoutMetaMatchesAllMeta() {
+        char[] table = identity();
+        BlockRemapFile.addRule(table, 1, -1, block(2, 0));
+        for (int i = 0; i < table.length; i++) {
+            assertEquals(i >> 4 == 1 ? block(2, 0) : i, table[i]);
+        }
+    }
+
+    @Test public void ruleWithMetaOnlyMatchesThatMeta() {
+        char[] table = identity();
+        BlockRemapFile.addRule(table, 1, 3, block(4, 4));
+        assertEquals(block(4, 4), table[block(1, 3)]);
+        assertEquals(block(1, 2), table[block(1, 2)]);
+        assertEquals(block(4, 4), table[block(4, 4)]);
+    }
+
+    @Test public void laterRuleAppliesToOutputOfEarlierRule() {
+        char[] table = identity();
+        BlockRemapFile.addRule(table, 1, 0, block(2, 0));
+        BlockRemapFile.addRule(table, 2, 0, block(3, 5));
+        assertEquals(block(3, 5), table[block(1, 0)]);
+        assertEquals(block(3, 5), table[block(2, 0)]);
+    }
+
+    @Test public void earlierRuleDoesNotApplyToOutputOfLaterRule() {
+        char[] table = identity();
+        BlockRemapFile.addRule(table, 2, 0, block(3, 0));
+        BlockRemapFile.addRule(table, 1, 0, block(2, 0));
+        assertEquals(block(2, 0), table[block(1, 0)]);
+        assertEquals(block(3, 0), table[block(2, 0)]);
+    }
+
+    @Test public void swapCollapsesLikeReplaceCommands() {
+        char[] table = identity();
+        BlockRemapFile.addRule(table, 1, 0, block(2, 0));
+        BlockRemapFile.addRule(table, 2, 0, block(1, 0));
+        assertEquals(block(1, 0), table[block(1, 0)]);
+        assertEquals(block(1, 0), table[block(2, 0)]);
+    }
+
+    @Test public void tableMatchesApplyingRulesInOrder() {
+        Random rand = new Random(1234);
+        int[][] rules = new int[200][];
+        for (int i = 0; i < rules.length; i++) {
+            // few ids, so that rules chain into each other
+            rules[i] = new int[] { rand.nextInt(8), rand.nextInt(3) == 0 ? -1 : rand.nextInt(16), block(rand.nextInt(8), rand.nextInt(16)) };
+        }
+        char[] table = identity();
+        for (int[] rule : rules) {
+            BlockRemapFile.addRule(table, rule[0], rule[1], rule[2]);
+        }
+        for (int block = 0; block < 8 << 4; block++) {
+            int expected = block;
+            for (int[] rule : rules) {
+                if (expected >> 4 == rule[0] && (rule[1] == -1 || (expected & 15) == rule[1])) {
+                    expected = rule[2];
+                }
+            }
+            assertEquals("block " + (block >> 4) + ":" + (block & 15), expected, table[block]);
+        }
+    }
+
+    @Test public void loadSkipsCommentsAndParsesWildcards() throws IOException {
+        Path file = write("# comment", "", "  1 * 2 0  ", "2 0 3 5");
+        char[] expected = identity();
+        BlockRemapFile.addRule(expected, 1, -1, block(2, 0));
+        BlockRemapFile.addRule(expected, 2, 0, block(3, 5));
+        assertArrayEquals(expected, BlockRemapFile.load(file));
+    }
+
+    @Test(expected = IOException.class) public void loadRejectsWrongFieldCount() throws IOException {
+        BlockRemapFile.load(write("1 0 2"));
+    }
+
+    @Test(expected = IOException.class) public void loadRejectsOutOfRangeId() throws IOException {
+        BlockRemapFile.load(write("4096 0 1 0"));
+    }
+
+    @Test(expected = IOException.class) public void loadRejectsWildcardOutputMeta() throws IOException {
+        BlockRemapFile.load(write("1 0 2 *"));
+    }
+
+    private static char[] identity() {
+        char[] table = new char[BlockRemapFile.TABLE_SIZE];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (char) i;
+        }
+        return table;
+    }
+
+    private static int block(int id, int meta) {
+        return id << 4 | meta;
+    }
+
+    private Path write(String... lines) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.conf.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.KeepEditTask;
+import cubicchunks.converter.lib.util.edittask.RemoveEditTask;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BoxListFileTest {
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test public void consecutiveRecordsWithTheSameOpBecomeOneTask() throws IOException {
+        Path file = write(BoxListFile.MAGIC, BoxListFile.VERSION, 4,
+                record(BoxListFile.OP_KEEP, 0, 0, 0, 1, 1, 1),
+                record(BoxListFile.OP_KEEP, -5, -6, -7, -1, -2, -3),
+                record(BoxListFile.OP_REMOVE, 10, 20, 30, 40, 50, 60),
+                record(BoxListFile.OP_KEEP_COLUMN, 2, 3, 4, 5, 6, 7));
+        EditTaskContext context = new EditTaskContext();
+
+        assertEquals(4, BoxListFile.load(file, context));
+
+        List<EditTask> tasks = context.getTasks();
+        assertEquals(3, tasks.size());
+
+        assertTrue(tasks.get(0) instanceof KeepEditTask);
+        assertFalse(((KeepEditTask) tasks.get(0)).isColumn());
+        assertEquals(Arrays.asList(new BoundingBox(0, 0, 0, 1, 1, 1), new BoundingBox(-5, -6, -7, -1, -2, -3)), tasks.get(0).getSrcBoxes());
+
+        assertTrue(tasks.get(1) instanceof RemoveEditTask);
+        assertEquals(Collections.singletonList(new BoundingBox(10, 20, 30, 40, 50, 60)), tasks.get(1).getSrcBoxes());
+
+        assertTrue(tasks.get(2) instanceof KeepEditTask);
+        assertTrue(((KeepEditTask) tasks.get(2)).isColumn());
+        assertEquals(Collections.singletonList(new BoundingBox(2, 3, 4, 5, 6, 7)), tasks.get(2).getSrcBoxes());
+    }
+
+    @Test public void emptyListAddsNoTasks() throws IOException {
+        EditTaskContext context = new EditTaskContext();
+        assertEquals(0, BoxListFile.load(write(BoxListFile.MAGIC, BoxListFile.VERSION, 0), context));
+        assertTrue(context.getTasks().isEmpty());
+    }
+
+    @Test(expected = IOException.class) public void wrongMagicIsRejected() throws IOException {
+        BoxListFile.load(write(0x12345678, BoxListFile.VERSION, 1, record(BoxListFile.OP_KEEP, 0, 0, 0, 0, 0, 0)), new EditTaskContext());
+    }
+
+    @Test(expected = IOException.class) public void unknownVersionIsRejected() throws IOException {
+        BoxListFile.load(write(BoxListFile.MAGIC, BoxListFile.VERSION + 1, 1, record(BoxListFile.OP_KEEP, 0, 0, 0, 0, 0, 0)), new EditTaskContext());
+    }
+
+    @Test(expected = IOException.class) public void wrongCountIsRejected() throws IOException {
+        BoxListFile.load(write(BoxListFile.MAGIC, BoxListFile.VERSION, 2, record(BoxListFile.OP_KEEP, 0, 0, 0, 0, 0, 0)), new EditTaskContext());
+    }
+
+    @Test(expected = IOException.class) public void unknownOpIsRejected() throws IOException {
+        BoxListFile.load(write(BoxListFile.MAGIC, BoxListFile.VERSION, 1, record((byte) 3, 0, 0, 0, 0, 0, 0)), new EditTaskContext());
+    }
+
+    private static int[] record(byte op, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return new int[] { op, minX, minY, minZ, maxX, maxY, maxZ };
+    }
+
+    private Path write(int magic, int version, int count, int[]... records) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeInt(count);
+            for (int[] record : records) {
+                out.writeByte(record[0]);
+                for (int i = 1; i < record.length; i++) {
+                    out.writeInt(record[i]);
+                }
+            }
+        }
+        return file;
+    }
+}
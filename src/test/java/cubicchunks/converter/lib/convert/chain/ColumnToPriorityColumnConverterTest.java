@@ -0,0 +1,157 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.chain;
+
+import static org.junit.Assert.assertEquals;
+
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.cc2ccrelocating.CC2CCRelocatingDataConverter;
+import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
+import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
+import cubicchunks.converter.lib.convert.io.CubicChunkReader;
+import cubicchunks.converter.lib.convert.io.CubicChunkWriter;
+import cubicchunks.converter.lib.convert.io.PriorityCubicChunkReader;
+import cubicchunks.converter.lib.convert.io.PriorityCubicChunkWriter;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.Vector3i;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.converter.lib.util.edittask.EditTask;
+import cubicchunks.converter.lib.util.edittask.KeepEditTask;
+import cubicchunks.regionlib.impl.EntryLocation2D;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ColumnToPriorityColumnConverterTest {
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The vanilla to relocated cubic chunks chain must give the same cubes as writing the converted columns and running the
+     * relocating conversion on them. A keep script only keeps the 3d regions it touches.
+     */
+    @Test public void keepScriptMatchesTwoStepConversion() throws Exception {
+        List<EditTask> tasks = Collections.singletonList(new KeepEditTask(new BoundingBox(0, 0, 0, 1, 1, 1)));
+        List<CubicChunksColumnData> columns = Arrays.asList(
+                column(0, 0, 0, 1, 17, -3),
+                column(20, 0, 0),
+                column(3, 5, 2));
+
+        Path twoStep = runTwoStep(tasks, columns);
+        Path chained = runChained(tasks, columns);
+
+        Map<Vector3i, ByteBuffer> expected = readCubes(twoStep);
+        assertEquals(new HashSet<>(Arrays.asList(new Vector3i(0, 0, 0), new Vector3i(0, 1, 0), new Vector3i(3, 2, 5))),
+                expected.keySet());
+        assertEquals(expected, readCubes(chained));
+    }
+
+    private Path runTwoStep(List<EditTask> tasks, List<CubicChunksColumnData> columns) throws Exception {
+        Path cc = folder.newFolder("cc").toPath();
+        try (CubicChunkWriter writer = new CubicChunkWriter(cc)) {
+            for (CubicChunksColumnData column : columns) {
+                writer.accept(column);
+            }
+        }
+        Path out = folder.newFolder("twoStep").toPath();
+        ConverterConfig config = relocatingConfig(tasks);
+        CC2CCRelocatingDataConverter converter = new CC2CCRelocatingDataConverter(config);
+        List<PriorityCubicChunksColumnData> read = new ArrayList<>();
+        try (PriorityCubicChunkReader reader = new PriorityCubicChunkReader(cc, config)) {
+            reader.countInputChunks(() -> {});
+            reader.loadChunks(column -> {
+                synchronized (read) {
+                    read.add(column);
+                }
+            }, t -> false);
+        }
+        try (PriorityCubicChunkWriter writer = new PriorityCubicChunkWriter(out)) {
+            for (PriorityCubicChunksColumnData column : read) {
+                for (PriorityCubicChunksColumnData converted : converter.convert(column)) {
+                    writer.accept(converted);
+                }
+            }
+        }
+        return out;
+    }
+
+    private Path runChained(List<EditTask> tasks, List<CubicChunksColumnData> columns) throws Exception {
+        Path out = folder.newFolder("chained").toPath();
+        ColumnToPriorityColumnConverter toPriority = new ColumnToPriorityColumnConverter(tasks);
+        CC2CCRelocatingDataConverter converter = new CC2CCRelocatingDataConverter(relocatingConfig(tasks));
+        try (PriorityCubicChunkWriter writer = new PriorityCubicChunkWriter(out)) {
+            for (CubicChunksColumnData column : columns) {
+                for (PriorityCubicChunksColumnData priorityColumn : toPriority.convert(column)) {
+                    for (PriorityCubicChunksColumnData converted : converter.convert(priorityColumn)) {
+                        writer.accept(converted);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static ConverterConfig relocatingConfig(List<EditTask> tasks) {
+        ConverterConfig config = new ConverterConfig(new HashMap<>());
+        config.set("relocations", tasks);
+        return config;
+    }
+
+    private static Map<Vector3i, ByteBuffer> readCubes(Path world) throws Exception {
+        Map<Vector3i, ByteBuffer> cubes = new ConcurrentHashMap<>();
+        try (CubicChunkReader reader = new CubicChunkReader(world, new ConverterConfig(new HashMap<>()))) {
+            reader.countInputChunks(() -> {});
+            reader.loadChunks(column -> column.getCubeData().forEach((y, cube) -> cubes.put(
+                    new Vector3i(column.getPosition().getEntryX(), y, column.getPosition().getEntryZ()), cube)), t -> false);
+        }
+        return cubes;
+    }
+
+    private static CubicChunksColumnData column(int x, int z, int... cubeYs) {
+        Map<Integer, ByteBuffer> cubes = new HashMap<>();
+        for (int y : cubeYs) {
+            cubes.put(y, Utils.createAirCubeBuffer(new EntryLocation3D(x, y, z)));
+        }
+        ByteBuffer columnData = ByteBuffer.wrap(new byte[] { (byte) x, (byte) z });
+        return new CubicChunksColumnData(overworld(), new EntryLocation2D(x, z), columnData, cubes);
+    }
+
+    private static Dimension overworld() {
+        return Dimensions.getDimensions().stream().filter(dim -> dim.getDirectory().isEmpty()).findAny().get();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class PriorityCubicChunkWriterTest {
+
+    private static final int[] XZ_EDGES = { -(1 << 21), -1, 0, (1 << 21) - 1 };
+    private static final int[] Y_EDGES = { -(1 << 19), -1, 0, (1 << 19) - 1 };
+
+    @Test public void packedKeysAreDistinctInRange() {
+        Set<Long> keys = new HashSet<>();
+        for (int x : XZ_EDGES) {
+            for (int y : Y_EDGES) {
+                for (int z : XZ_EDGES) {
+                    assertTrue(PriorityCubicChunkWriter.canPackCubePos(x, y, z));
+                    keys.add(PriorityCubicChunkWriter.packCubePos(x, y, z));
+                }
+            }
+        }
+        assertEquals(XZ_EDGES.length * Y_EDGES.length * XZ_EDGES.length, keys.size());
+    }
+
+    @Test public void wrappingPositionsCantBePacked() {
+        assertFalse(PriorityCubicChunkWriter.canPackCubePos(1 << 21, 0, 0));
+        assertFalse(PriorityCubicChunkWriter.canPackCubePos(-(1 << 21) - 1, 0, 0));
+        assertFalse(PriorityCubicChunkWriter.canPackCubePos(0, 1 << 19, 0));
+        assertFalse(PriorityCubicChunkWriter.canPackCubePos(0, -(1 << 19) - 1, 0));
+        assertFalse(PriorityCubicChunkWriter.canPackCubePos(0, 0, 1 << 21));
+        assertFalse(PriorityCubicChunkWriter.canPackCubePos(0, 0, Integer.MAX_VALUE / 2));
+        // these would wrap onto the cube at 0, 0, 0
+        assertEquals(PriorityCubicChunkWriter.packCubePos(0, 0, 0), PriorityCubicChunkWriter.packCubePos(0, 1 << 20, 0));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.robinton2cc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class Robinton2CCConverterTest {
+
+    @Test public void flipXYMatchesPerArrayFlips() {
+        Random rand = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            byte[] blocks = new byte[4096];
+            byte[] data = new byte[2048];
+            byte[] blockLight = new byte[2048];
+            byte[] skyLight = new byte[2048];
+            rand.nextBytes(blocks);
+            rand.nextBytes(data);
+            rand.nextBytes(blockLight);
+            rand.nextBytes(skyLight);
+            assertSameFlip(blocks, data, blockLight, skyLight);
+        }
+    }
+
+    @Test public void flipXYMatchesPerArrayFlipsOnIndexedArrays() {
+        // every block and nibble distinct from its neighbors, so that any misplaced one shows up
+        byte[] blocks = new byte[4096];
+        byte[] nibbles = new byte[2048];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = (byte) (i ^ i >> 8);
+        }
+        for (int i = 0; i < nibbles.length; i++) {
+            nibbles[i] = (byte) (i ^ i >> 4 ^ i >> 8);
+        }
+        assertSameFlip(blocks, nibbles, nibbles.clone(), nibbles.clone());
+    }
+
+    private static void assertSameFlip(byte[] blocks, byte[] data, byte[] blockLight, byte[] skyLight) {
+        byte[] blocksOut = new byte[4096];
+        byte[] dataOut = new byte[2048];
+        byte[] blockLightOut = new byte[2048];
+        byte[] skyLightOut = new byte[2048];
+        Robinton2CCConverter.flipXY(blocks, data, blockLight, skyLight, blocksOut, dataOut, blockLightOut, skyLightOut);
+
+        assertArrayEquals(flipXYFull(blocks), blocksOut);
+        assertArrayEquals(flipXYNibble(data), dataOut);
+        assertArrayEquals(flipXYNibble(blockLight), blockLightOut);
+        assertArrayEquals(flipXYNibble(skyLight), skyLightOut);
+    }
+
+    // the separate flips per array the converter used before flipXY
+
+    private static byte[] flipXYFull(byte[] dataIn) {
+        byte[] newData = new byte[4096];
+        for (int i = 0; i < 4096; i++) {
+            int x = i & 15;
+            int y = i >> 8 & 15;
+            int z = i >> 4 & 15;
+            // current: yyyy zzzz xxxx
+            // old:     xxxx zzzz yyyy
+            int oldIdx = y | z << 4 | x << 8;
+            newData[i] = dataIn[oldIdx];
+        }
+        return newData;
+    }
+
+    private static byte[] flipXYNibble(byte[] dataIn) {
+        byte[] newData = new byte[2048];
+        for (int newIdx = 0; newIdx < 4096; newIdx++) {
+            int x = newIdx & 15;
+            int y = newIdx >> 8 & 15;
+            int z = newIdx >> 4 & 15;
+            // current: yyyy zzzz xxxx
+            // old:     xxxx zzzz yyyy
+            int oldIdx = y | z << 4 | x << 8;
+
+            int oldNibbleIdx = oldIdx >>> 1;
+            int nibbleIdx = newIdx >>> 1;
+
+            boolean oldLower = (oldIdx & 1) == 0;
+            boolean newLower = (newIdx & 1) == 0;
+
+            int data = (dataIn[oldNibbleIdx] >>> (oldLower ? 0 : 4)) & 0xF;
+            newData[nibbleIdx] |= data << (newLower ? 0 : 4);
+        }
+        return newData;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class NibbleArraysTest {
+
+    @Test public void setOnlyChangesItsNibble() {
+        byte[] arr = new byte[2];
+        NibbleArrays.set(arr, 0, 0x1);
+        NibbleArrays.set(arr, 1, 0x2);
+        NibbleArrays.set(arr, 3, 0xff);
+        assertArrayEquals(new byte[] { 0x21, (byte) 0xf0 }, arr);
+        assertEquals(0x1, NibbleArrays.get(arr, 0));
+        assertEquals(0x2, NibbleArrays.get(arr, 1));
+        assertEquals(0x0, NibbleArrays.get(arr, 2));
+        assertEquals(0xf, NibbleArrays.get(arr, 3));
+    }
+
+    @Test public void fillMatchesSettingEachNibble() {
+        Random rand = new Random(1);
+        for (int from = 0; from <= 16; from++) {
+            for (int to = 0; to <= 16; to++) {
+                byte[] initial = new byte[8];
+                rand.nextBytes(initial);
+                int value = rand.nextInt(16);
+
+                byte[] expected = initial.clone();
+                for (int i = from; i < to; i++) {
+                    NibbleArrays.set(expected, i, value);
+                }
+                byte[] actual = initial.clone();
+                NibbleArrays.fill(actual, from, to, value);
+                assertArrayEquals("fill " + from + " to " + to, expected, actual);
+            }
+        }
+    }
+
+    @Test public void packMatchesSettingEachNibble() {
+        Random rand = new Random(2);
+        byte[] src = new byte[20];
+        for (int srcIndex = 0; srcIndex < 4; srcIndex++) {
+            for (int dstIndex = 0; dstIndex < 4; dstIndex++) {
+                for (int length = 0; length <= 12; length++) {
+                    // high bits set too, only the low 4 bits may be used
+                    rand.nextBytes(src);
+                    byte[] initial = new byte[10];
+                    rand.nextBytes(initial);
+
+                    byte[] expected = initial.clone();
+                    for (int i = 0; i < length; i++) {
+                        NibbleArrays.set(expected, dstIndex + i, src[srcIndex + i]);
+                    }
+                    byte[] actual = initial.clone();
+                    NibbleArrays.pack(src, srcIndex, actual, dstIndex, length);
+                    assertArrayEquals("pack from " + srcIndex + " to " + dstIndex + ", length " + length, expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test public void isUniformChecksEveryNibble() {
+        byte[] arr = new byte[2048];
+        NibbleArrays.fill(arr, 0, 4096, 7);
+        assertTrue(NibbleArrays.isUniform(arr, 7));
+        assertFalse(NibbleArrays.isUniform(arr, 0));
+        NibbleArrays.set(arr, 4095, 6);
+        assertFalse(NibbleArrays.isUniform(arr, 7));
+    }
+
+    @Test public void applyTableWithAddMatchesPerBlockLookup() {
+        Random rand = new Random(3);
+        char[] table = randomTable(rand, 1 << 16);
+        byte[] blocks = new byte[4096];
+        byte[] meta = new byte[2048];
+        byte[] add = new byte[2048];
+        rand.nextBytes(blocks);
+        rand.nextBytes(meta);
+        rand.nextBytes(add);
+
+        byte[] expectedBlocks = blocks.clone();
+        byte[] expectedMeta = meta.clone();
+        byte[] expectedAdd = add.clone();
+        for (int i = 0; i < 4096; i++) {
+            int block = NibbleArrays.get(add, i) << 12 | (blocks[i] & 0xff) << 4 | NibbleArrays.get(meta, i);
+            int out = table[block];
+            expectedBlocks[i] = (byte) (out >> 4);
+            NibbleArrays.set(expectedMeta, i, out);
+            NibbleArrays.set(expectedAdd, i, out >> 12);
+        }
+
+        NibbleArrays.applyTable(blocks, meta, add, table);
+        assertArrayEquals(expectedBlocks, blocks);
+        assertArrayEquals(expectedMeta, meta);
+        assertArrayEquals(expectedAdd, add);
+    }
+
+    @Test public void applyTableWithAddCanClearAndSetAddNibbles() {
+        char[] table = new char[1 << 16];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (char) i;
+        }
+        // 0x123:4 becomes 0x045:6 and 0x007:8 becomes 0xf07:8, so one add nibble is cleared and one set
+        table[0x123 << 4 | 4] = 0x045 << 4 | 6;
+        table[0x007 << 4 | 8] = 0xf07 << 4 | 8;
+        byte[] blocks = { 0x23, 0x07 };
+        byte[] meta = { (byte) 0x84 };
+        byte[] add = { 0x01 };
+
+        NibbleArrays.applyTable(blocks, meta, add, table);
+        assertArrayEquals(new byte[] { 0x45, 0x07 }, blocks);
+        assertArrayEquals(new byte[] { (byte) 0x86 }, meta);
+        assertArrayEquals(new byte[] { (byte) 0xf0 }, add);
+    }
+
+    @Test public void applyTableWithoutAddMatchesPerBlockLookup() {
+        Random rand = new Random(4);
+        // without Add, the table only maps to 8 bit ids
+        char[] table = randomTable(rand, 1 << 12);
+        byte[] blocks = new byte[4096];
+        byte[] meta = new byte[2048];
+        rand.nextBytes(blocks);
+        rand.nextBytes(meta);
+
+        byte[] expectedBlocks = blocks.clone();
+        byte[] expectedMeta = meta.clone();
+        for (int i = 0; i < 4096; i++) {
+            int out = table[(blocks[i] & 0xff) << 4 | NibbleArrays.get(meta, i)];
+            expectedBlocks[i] = (byte) (out >> 4);
+            NibbleArrays.set(expectedMeta, i, out);
+        }
+
+        NibbleArrays.applyTable(blocks, meta, null, table);
+        assertArrayEquals(expectedBlocks, blocks);
+        assertArrayEquals(expectedMeta, meta);
+    }
+
+    private static char[] randomTable(Random rand, int range) {
+        char[] table = new char[range];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (char) rand.nextInt(range);
+        }
+        return table;
+    }
+}
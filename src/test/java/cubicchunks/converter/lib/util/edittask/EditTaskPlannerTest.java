@@ -0,0 +1,275 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.flowpowered.nbt.CompoundMap;
+import com.flowpowered.nbt.CompoundTag;
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.NibbleArrays;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.converter.lib.util.Vector3i;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public class EditTaskPlannerTest {
+
+    private static final int WORLD_SIZE = 4;
+
+    @Test public void consecutiveRemovesMergeIntoOneBox() {
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new RemoveEditTask(new BoundingBox(0, 0, 0, 1, 3, 3)),
+                new RemoveEditTask(new BoundingBox(2, 0, 0, 3, 3, 3)));
+        List<EditTask> optimized = assertEquivalent(tasks);
+        assertEquals(1, optimized.size());
+        assertEquals(Arrays.asList(new BoundingBox(0, 0, 0, 3, 3, 3)), optimized.get(0).getSrcBoxes());
+    }
+
+    @Test public void setOverwrittenByLaterRemoveIsDropped() {
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new SetEditTask(new BoundingBox(1, 1, 1, 2, 2, 2), (byte) 1, (byte) 0),
+                new RemoveEditTask(new BoundingBox(0, 0, 0, 3, 3, 3)));
+        List<EditTask> optimized = assertEquivalent(tasks);
+        assertEquals(1, optimized.size());
+        assertTrue(optimized.get(0) instanceof RemoveEditTask);
+    }
+
+    @Test public void setPartiallyOverwrittenByLaterRemoveIsKept() {
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new SetEditTask(new BoundingBox(0, 0, 0, 2, 2, 2), (byte) 1, (byte) 0),
+                new RemoveEditTask(new BoundingBox(1, 1, 1, 3, 3, 3)));
+        assertEquals(2, assertEquivalent(tasks).size());
+    }
+
+    @Test public void replacesOnTheSameBoxCollapse() {
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new ReplaceEditTask(new BoundingBox(0, 0, 0, 2, 2, 2), (byte) 0, (byte) -1, (byte) 1, (byte) 0),
+                new ReplaceEditTask(new BoundingBox(0, 0, 0, 2, 2, 2), (byte) 1, (byte) 0, (byte) 2, (byte) 1));
+        List<EditTask> optimized = assertEquivalent(tasks);
+        assertEquals(1, optimized.size());
+        assertEquals(2, ((ReplaceEditTask) optimized.get(0)).ruleCount());
+    }
+
+    @Test public void replacesWithDifferentRulesDoNotMerge() {
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new ReplaceEditTask(new BoundingBox(0, 0, 0, 1, 3, 3), (byte) 0, (byte) -1, (byte) 1, (byte) 0),
+                new ReplaceEditTask(new BoundingBox(1, 0, 0, 3, 3, 3), (byte) 1, (byte) -1, (byte) 2, (byte) 0));
+        assertEquals(2, assertEquivalent(tasks).size());
+    }
+
+    @Test public void multiRuleReplacesDoNotMerge() {
+        // each pair collapses into 1 -> 2, 0 -> 1, which turns 0 into 2 when applied twice where the boxes overlap
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new ReplaceEditTask(new BoundingBox(0, 0, 0, 2, 3, 3), (byte) 1, (byte) -1, (byte) 2, (byte) 0),
+                new ReplaceEditTask(new BoundingBox(0, 0, 0, 2, 3, 3), (byte) 0, (byte) -1, (byte) 1, (byte) 0),
+                new ReplaceEditTask(new BoundingBox(1, 0, 0, 3, 3, 3), (byte) 1, (byte) -1, (byte) 2, (byte) 0),
+                new ReplaceEditTask(new BoundingBox(1, 0, 0, 3, 3, 3), (byte) 0, (byte) -1, (byte) 1, (byte) 0));
+        assertEquals(2, assertEquivalent(tasks).size());
+    }
+
+    @Test public void setsWithDifferentBlocksDoNotMerge() {
+        Supplier<List<EditTask>> tasks = () -> Arrays.asList(
+                new SetEditTask(new BoundingBox(0, 0, 0, 2, 2, 2), (byte) 1, (byte) 0),
+                new SetEditTask(new BoundingBox(1, 1, 1, 3, 3, 3), (byte) 1, (byte) 1));
+        assertEquals(2, assertEquivalent(tasks).size());
+    }
+
+    @Test public void keepAndKeepColumnDoNotMerge() {
+        List<EditTask> tasks = Arrays.asList(
+                new KeepEditTask(new BoundingBox(0, 0, 0, 1, 1, 1)),
+                KeepEditTask.keepColumn(new BoundingBox(2, 0, 0, 3, 1, 1)));
+        assertEquals(2, EditTaskPlanner.optimize(tasks).size());
+    }
+
+    @Test public void optimizedRandomScriptsAreEquivalent() {
+        Random rand = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            long seed = rand.nextLong();
+            assertEquivalent(() -> randomScript(new Random(seed)));
+        }
+    }
+
+    @Test public void mergeBoxesCoversTheSameCells() {
+        Random rand = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            List<BoundingBox> boxes = new ArrayList<>();
+            int count = 1 + rand.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                // mostly aligned boxes, so that some of them merge
+                int x = rand.nextInt(3) * 2, y = rand.nextInt(3) * 2, z = rand.nextInt(2);
+                boxes.add(new BoundingBox(x, y, z, x + 1 + rand.nextInt(2), y + 1, z + rand.nextInt(2)));
+            }
+            Set<Vector3i> expected = cells(boxes);
+            EditTaskPlanner.mergeBoxes(boxes);
+            assertEquals(expected, cells(boxes));
+        }
+    }
+
+    @Test public void mergeBoxesLeavesNonBoxUnions() {
+        List<BoundingBox> boxes = new ArrayList<>(Arrays.asList(
+                new BoundingBox(0, 0, 0, 1, 1, 1),
+                new BoundingBox(2, 0, 0, 3, 2, 1)));
+        EditTaskPlanner.mergeBoxes(boxes);
+        assertEquals(2, boxes.size());
+    }
+
+    private static List<EditTask> randomScript(Random rand) {
+        List<EditTask> tasks = new ArrayList<>();
+        int count = 1 + rand.nextInt(8);
+        int kind = 0;
+        byte[] args = new byte[4];
+        BoundingBox box = null;
+        for (int i = 0; i < count; i++) {
+            // often repeat the previous task on a new box (or, for replace, with the same box), so that the merges are exercised
+            boolean repeat = i > 0 && rand.nextBoolean();
+            if (!repeat) {
+                kind = rand.nextInt(3);
+                args[0] = (byte) rand.nextInt(3);
+                args[1] = (byte) (rand.nextInt(3) - 1);
+                args[2] = (byte) rand.nextInt(3);
+                args[3] = (byte) rand.nextInt(2);
+            }
+            if (!repeat || kind != 1 || rand.nextBoolean()) {
+                box = randomBox(rand);
+            }
+            switch (kind) {
+                case 0:
+                    tasks.add(new SetEditTask(box, args[0], args[3]));
+                    break;
+                case 1:
+                    tasks.add(new ReplaceEditTask(box, args[0], args[1], args[2], args[3]));
+                    break;
+                default:
+                    tasks.add(new RemoveEditTask(box));
+            }
+        }
+        return tasks;
+    }
+
+    private static BoundingBox randomBox(Random rand) {
+        int x = rand.nextInt(WORLD_SIZE), y = rand.nextInt(WORLD_SIZE), z = rand.nextInt(WORLD_SIZE);
+        return new BoundingBox(x, y, z,
+                x + rand.nextInt(WORLD_SIZE - x), y + rand.nextInt(WORLD_SIZE - y), z + rand.nextInt(WORLD_SIZE - z));
+    }
+
+    private static Set<Vector3i> cells(List<BoundingBox> boxes) {
+        Set<Vector3i> cells = new HashSet<>();
+        boxes.forEach(box -> box.forEach(cells::add));
+        return cells;
+    }
+
+    /**
+     * Runs the tasks and the optimized tasks on the same world and checks that they give the same blocks. The tasks are
+     * created twice, as optimizing may merge boxes into the given tasks.
+     *
+     * @return the optimized tasks
+     */
+    private static List<EditTask> assertEquivalent(Supplier<List<EditTask>> tasks) {
+        long seed = new Random(tasks.get().size()).nextLong();
+        CompoundTag[][][] expected = apply(tasks.get(), createWorld(seed));
+        List<EditTask> optimized = EditTaskPlanner.optimize(tasks.get());
+        CompoundTag[][][] actual = apply(optimized, createWorld(seed));
+        for (int x = 0; x < WORLD_SIZE; x++) {
+            for (int y = 0; y < WORLD_SIZE; y++) {
+                for (int z = 0; z < WORLD_SIZE; z++) {
+                    String message = "cube " + x + ", " + y + ", " + z + " of " + tasks.get() + " optimized to " + optimized;
+                    if (expected[x][y][z] == null) {
+                        assertNull(message, actual[x][y][z]);
+                        continue;
+                    }
+                    assertTrue(message, actual[x][y][z] != null);
+                    assertArrayEquals(message, section(expected[x][y][z], "Blocks"), section(actual[x][y][z], "Blocks"));
+                    assertArrayEquals(message, section(expected[x][y][z], "Data"), section(actual[x][y][z], "Data"));
+                }
+            }
+        }
+        return optimized;
+    }
+
+    private static CompoundTag[][][] createWorld(long seed) {
+        Random rand = new Random(seed);
+        CompoundTag[][][] world = new CompoundTag[WORLD_SIZE][WORLD_SIZE][WORLD_SIZE];
+        for (int x = 0; x < WORLD_SIZE; x++) {
+            for (int y = 0; y < WORLD_SIZE; y++) {
+                for (int z = 0; z < WORLD_SIZE; z++) {
+                    CompoundTag cube = Utils.emptyCube(x, y, z);
+                    byte[] blocks = section(cube, "Blocks");
+                    byte[] meta = section(cube, "Data");
+                    for (int i = 0; i < blocks.length; i++) {
+                        blocks[i] = (byte) rand.nextInt(3);
+                        NibbleArrays.set(meta, i, rand.nextInt(2));
+                    }
+                    world[x][y][z] = cube;
+                }
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Applies the tasks the way the relocating converter does: each cube in a source box of a task is given to it once,
+     * and the cube it returns at the same position replaces it.
+     */
+    private static CompoundTag[][][] apply(List<EditTask> tasks, CompoundTag[][][] world) {
+        EditTaskContext.EditTaskConfig config = new EditTaskContext.EditTaskConfig();
+        for (EditTask task : tasks) {
+            task.initialise(config);
+            for (int x = 0; x < WORLD_SIZE; x++) {
+                for (int y = 0; y < WORLD_SIZE; y++) {
+                    for (int z = 0; z < WORLD_SIZE; z++) {
+                        int cx = x, cy = y, cz = z;
+                        if (world[x][y][z] == null || task.getSrcBoxes().stream().noneMatch(box -> box.intersects(cx, cy, cz))) {
+                            continue;
+                        }
+                        Vector3i pos = new Vector3i(x, y, z);
+                        List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> out = task.actOnCube(pos, config, world[x][y][z], 0);
+                        assertEquals(1, out.size());
+                        assertEquals(pos, out.get(0).getKey());
+                        world[x][y][z] = out.get(0).getValue().getValue();
+                    }
+                }
+            }
+        }
+        return world;
+    }
+
+    private static byte[] section(CompoundTag cube, String name) {
+        CompoundMap level = (CompoundMap) cube.getValue().get("Level").getValue();
+        CompoundMap section = ((CompoundTag) ((List<?>) level.get("Sections").getValue()).get(0)).getValue();
+        return (byte[]) section.get(name).getValue();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import cubicchunks.converter.lib.util.Matrix4d;
+import cubicchunks.converter.lib.util.NibbleArrays;
+import cubicchunks.converter.lib.util.Schematic;
+import cubicchunks.converter.lib.util.Vector3i;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SchematicTaskTest {
+
+    // sizes that don't divide the cube size, so that pastes start and end inside cubes
+    private static final int X_SIZE = 5, Y_SIZE = 19, Z_SIZE = 23;
+    private static final Vector3i[] OFFSETS = {
+            new Vector3i(0, 0, 0),
+            new Vector3i(-7, 13, 30),
+            new Vector3i(15, -1, -17),
+            new Vector3i(-40, 100, 3)
+    };
+
+    @Test public void axisAlignedPasteMatchesTransformedPaste() {
+        Schematic schematic = randomSchematic(new Random(1));
+        int[][] permutations = { {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0} };
+        for (int[] permutation : permutations) {
+            for (int signs = 0; signs < 8; signs++) {
+                for (Vector3i offset : OFFSETS) {
+                    Matrix4d transform = signedPermutation(permutation, signs, offset);
+                    assertSamePaste(new SchematicTask(schematic, transform, false, ""), transform);
+                    assertSamePaste(new SchematicTask(schematic, transform, true, ""), transform);
+                }
+            }
+        }
+    }
+
+    @Test public void offsetPasteCopiesBlocks() {
+        Schematic schematic = randomSchematic(new Random(2));
+        Vector3i offset = new Vector3i(-7, 13, 30);
+        SchematicTask task = new SchematicTask(schematic, new Matrix4d().setIdentity().translate(offset), false, "");
+        for (int x = 0; x < X_SIZE; x++) {
+            for (int y = 0; y < Y_SIZE; y++) {
+                for (int z = 0; z < Z_SIZE; z++) {
+                    int worldX = x + offset.getX(), worldY = y + offset.getY(), worldZ = z + offset.getZ();
+                    byte[] blocks = new byte[4096];
+                    byte[] meta = new byte[2048];
+                    task.pasteAxisAligned(worldX & ~15, worldY & ~15, worldZ & ~15, blocks, meta);
+                    int i = (worldY & 15) << 8 | (worldZ & 15) << 4 | worldX & 15;
+                    int idx = schematic.index(x, y, z);
+                    assertEquals(schematic.id(idx), blocks[i] & 0xFF);
+                    assertEquals(schematic.meta(idx), NibbleArrays.get(meta, i));
+                }
+            }
+        }
+    }
+
+    private static void assertSamePaste(SchematicTask task, Matrix4d transform) {
+        int[] pastedCubes = {0};
+        task.getSrcBoxes().get(0).forEach(cube -> {
+            Random rand = new Random(cube.hashCode());
+            byte[] blocks = new byte[4096];
+            byte[] meta = new byte[2048];
+            rand.nextBytes(blocks);
+            rand.nextBytes(meta);
+            byte[] initialBlocks = blocks.clone();
+            byte[] expectedBlocks = blocks.clone();
+            byte[] expectedMeta = meta.clone();
+
+            int baseX = cube.getX() * 16, baseY = cube.getY() * 16, baseZ = cube.getZ() * 16;
+            task.pasteTransformed(baseX, baseY, baseZ, expectedBlocks, expectedMeta);
+            task.pasteAxisAligned(baseX, baseY, baseZ, blocks, meta);
+
+            String message = "cube " + cube + " with transform " + transform;
+            assertArrayEquals(message, expectedBlocks, blocks);
+            assertArrayEquals(message, expectedMeta, meta);
+            if (!Arrays.equals(initialBlocks, blocks)) {
+                pastedCubes[0]++;
+            }
+        });
+        // the schematic spans several cubes along y and z
+        assertTrue(pastedCubes[0] > 1);
+    }
+
+    /**
+     * @param permutation world axis of each schematic axis
+     * @param signs bit k set to mirror schematic axis k
+     */
+    private static Matrix4d signedPermutation(int[] permutation, int signs, Vector3i offset) {
+        double[][] m = new double[4][4];
+        for (int k = 0; k < 3; k++) {
+            m[k][permutation[k]] = (signs & 1 << k) != 0 ? -1 : 1;
+        }
+        m[3][0] = offset.getX();
+        m[3][1] = offset.getY();
+        m[3][2] = offset.getZ();
+        m[3][3] = 1;
+        return new Matrix4d(
+                m[0][0], m[0][1], m[0][2], m[0][3],
+                m[1][0], m[1][1], m[1][2], m[1][3],
+                m[2][0], m[2][1], m[2][2], m[2][3],
+                m[3][0], m[3][1], m[3][2], m[3][3]);
+    }
+
+    private static Schematic randomSchematic(Random rand) {
+        int volume = X_SIZE * Y_SIZE * Z_SIZE;
+        byte[] blocks = new byte[volume];
+        byte[] data = new byte[volume];
+        for (int i = 0; i < volume; i++) {
+            // plenty of air for skipAir
+            blocks[i] = (byte) (rand.nextBoolean() ? 0 : 1 + rand.nextInt(255));
+            data[i] = (byte) rand.nextInt(16);
+        }
+        return new Schematic(X_SIZE, Y_SIZE, Z_SIZE, blocks, new byte[(volume + 1) / 2], data);
+    }
+}
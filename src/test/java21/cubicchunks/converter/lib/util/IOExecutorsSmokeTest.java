@@ -0,0 +1,125 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks the Java 21 version of {@link IOExecutors} on a Java 21 runtime. Run by the java21SmokeTest task, which
+ * fails when this exits with an error.
+ */
+public class IOExecutorsSmokeTest {
+
+    public static void main(String[] args) throws Exception {
+        readsRunOnVirtualThreads();
+        readsRespectIODepth();
+        failuresAreRethrown();
+        virtualThreadsCanBeTurnedOff();
+        System.out.println("IOExecutors smoke test passed");
+    }
+
+    private static void readsRunOnVirtualThreads() {
+        IOExecutors io = IOExecutors.fromConfig(null);
+        check(io.usesVirtualThreads(), "virtual threads not used by default");
+        List<Integer> items = items(1000);
+        AtomicIntegerArray runs = new AtomicIntegerArray(items.size());
+        AtomicInteger platformRuns = new AtomicInteger();
+        io.forEachBlocking(items, i -> {
+            runs.incrementAndGet(i);
+            if (!Thread.currentThread().isVirtual()) {
+                platformRuns.incrementAndGet();
+            }
+        });
+        for (int i = 0; i < items.size(); i++) {
+            check(runs.get(i) == 1, "item " + i + " ran " + runs.get(i) + " times");
+        }
+        check(platformRuns.get() == 0, platformRuns.get() + " items ran on platform threads");
+    }
+
+    private static void readsRespectIODepth() {
+        ConverterConfig config = new ConverterConfig(new HashMap<>());
+        config.set(IOExecutors.IO_DEPTH, 4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        IOExecutors.fromConfig(config).forEachBlocking(items(200), i -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            inFlight.decrementAndGet();
+        });
+        check(maxInFlight.get() <= 4, maxInFlight.get() + " reads in flight with an IO depth of 4");
+    }
+
+    private static void failuresAreRethrown() {
+        IllegalStateException failure = new IllegalStateException("expected");
+        try {
+            IOExecutors.fromConfig(null).forEachBlocking(items(100), i -> {
+                if (i == 50) {
+                    throw failure;
+                }
+            });
+        } catch (IllegalStateException e) {
+            check(e == failure, "a different exception was thrown: " + e);
+            return;
+        }
+        throw new AssertionError("the failure wasn't rethrown");
+    }
+
+    private static void virtualThreadsCanBeTurnedOff() {
+        ConverterConfig config = new ConverterConfig(new HashMap<>());
+        config.set(IOExecutors.VIRTUAL_THREADS, false);
+        IOExecutors io = IOExecutors.fromConfig(config);
+        check(!io.usesVirtualThreads(), "virtual threads still used");
+        AtomicInteger virtualRuns = new AtomicInteger();
+        io.forEachBlocking(items(100), i -> {
+            if (Thread.currentThread().isVirtual()) {
+                virtualRuns.incrementAndGet();
+            }
+        });
+        check(virtualRuns.get() == 0, virtualRuns.get() + " items ran on virtual threads");
+    }
+
+    private static List<Integer> items(int count) {
+        List<Integer> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}